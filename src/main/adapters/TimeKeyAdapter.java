@@ -0,0 +1,32 @@
+package main.adapters;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import main.tasks.Task;
+import main.util.IntervalTree;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+// an IntervalTree key written as the same string LocalDateTimeAdapter writes; NO_TIME is written as null
+public class TimeKeyAdapter extends TypeAdapter<Long> {
+    public Long read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Task.NO_TIME;
+        }
+        String time = reader.nextString();
+        return IntervalTree.key(LocalDateTime.parse(time));
+    }
+
+    public void write(JsonWriter writer, Long value) throws IOException {
+        if (value == null || value == Task.NO_TIME) {
+            writer.nullValue();
+            return;
+        }
+        String time = IntervalTree.time(value).toString();
+        writer.value(time);
+    }
+}
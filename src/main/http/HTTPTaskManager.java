@@ -9,7 +9,6 @@ import main.tasks.Subtask;
 import main.tasks.Task;
 
 import java.time.Instant;
-import java.util.stream.Collectors;
 
 public class HTTPTaskManager extends FileBackedTasksManager {
 
@@ -39,6 +38,7 @@ public class HTTPTaskManager extends FileBackedTasksManager {
             for (JsonElement jsonTask : jsonTasksArray) {
                 Task task = gson.fromJson(jsonTask, Task.class);
                 tasks.put(task.getId(), task);
+                index(task);
                 setPrioritizedTasks(task);
             }
         }
@@ -49,6 +49,7 @@ public class HTTPTaskManager extends FileBackedTasksManager {
             for (JsonElement jsonEpic : jsonEpicsArray) {
                 Epic task = gson.fromJson(jsonEpic, Epic.class);
                 epics.put(task.getId(), task);
+                index(task);
             }
         }
 
@@ -58,6 +59,7 @@ public class HTTPTaskManager extends FileBackedTasksManager {
             for (JsonElement jsonSubtask : jsonSubtasksArray) {
                 Subtask task = gson.fromJson(jsonSubtask, Subtask.class);
                 subtasks.put(task.getId(), task);
+                index(task);
                 setPrioritizedTasks(task);
             }
         }
@@ -76,6 +78,7 @@ public class HTTPTaskManager extends FileBackedTasksManager {
                 }
             }
         }
+        modified();
     }
 
     public Integer findMaxId () {
@@ -103,10 +106,7 @@ public class HTTPTaskManager extends FileBackedTasksManager {
         client.put(KEY_TASKS, gson.toJson(tasks.values()));
         client.put(KEY_SUBTASKS, gson.toJson(subtasks.values()));
         client.put(KEY_EPICS, gson.toJson(epics.values()));
-        client.put(KEY_HISTORY, gson.toJson(this.getHistory()
-                .stream()
-                .map(Task::getId)
-                .collect(Collectors.toList())));
+        client.put(KEY_HISTORY, gson.toJson(historyIds()));
     }
 
 }
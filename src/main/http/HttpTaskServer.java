@@ -1,30 +1,64 @@
 package main.http;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import main.http.handlers.*;
-import main.managers.HistoryManager;
 import main.managers.Managers;
+import main.managers.SessionHistoryManager;
 import main.managers.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
 
 public class HttpTaskServer {
     private final HttpServer httpServer;
     private static final int PORT = 8080;
+    public static final String SESSION_HEADER = "X-Session-Token";
+    private final SessionHistoryManager sessions;
 
     public HttpTaskServer() throws IOException {
-        HistoryManager historyManager = Managers.getDefaultHistory();
-        TaskManager taskManager = Managers.getDefault(historyManager);
+        this(Managers.getDefault(Managers.getDefaultHistory()), null);
+    }
+
+    // handlers keep the response in a field, so each exchange gets its own handler instance
+    public HttpTaskServer(TaskManager taskManager, Executor executor) throws IOException {
+        this(taskManager, executor, null);
+    }
 
+    // with sessions, the manager should be built on the same SessionHistoryManager; each exchange is bound
+    // to the history of its SESSION_HEADER token
+    public HttpTaskServer(TaskManager taskManager, Executor executor, SessionHistoryManager sessions)
+            throws IOException {
+        this.sessions = sessions;
         this.httpServer = HttpServer.create();
         httpServer.bind(new InetSocketAddress(PORT), 0);
-        httpServer.createContext("/tasks/task/", new TaskHandler(taskManager));
-        httpServer.createContext("/tasks/epic/", new EpicHandler(taskManager));
-        httpServer.createContext("/tasks/subtask/", new SubtaskHandler(taskManager));
-        httpServer.createContext("/tasks/subtask/epic/", new SubtaskByEpicHandler(taskManager));
-        httpServer.createContext("/tasks/history/", new HistoryHandler(taskManager));
-        httpServer.createContext("/tasks/", new TasksHandler(taskManager));
+        httpServer.createContext("/tasks/task/", scoped(exchange -> new TaskHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/epic/", scoped(exchange -> new EpicHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/subtask/",
+                scoped(exchange -> new SubtaskHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/subtask/epic/",
+                scoped(exchange -> new SubtaskByEpicHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/history/",
+                scoped(exchange -> new HistoryHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/search", scoped(exchange -> new SearchHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/slot/", scoped(exchange -> new SlotHandler(taskManager).handle(exchange)));
+        httpServer.createContext("/tasks/", scoped(exchange -> new TasksHandler(taskManager).handle(exchange)));
+        httpServer.setExecutor(executor);
+    }
+
+    private HttpHandler scoped(HttpHandler handler) {
+        if (sessions == null) {
+            return handler;
+        }
+        return exchange -> {
+            sessions.bind(exchange.getRequestHeaders().getFirst(SESSION_HEADER));
+            try {
+                handler.handle(exchange);
+            } finally {
+                sessions.unbind();
+            }
+        };
     }
 
     public void start() {
@@ -35,4 +69,4 @@ public class HttpTaskServer {
         httpServer.stop(1);
     }
 
-}
\ No newline at end of file
+}
@@ -9,13 +9,16 @@ import main.managers.TaskManager;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 
 public class BaseHandler implements HttpHandler{
 
-    protected final Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter()).create();
+    protected static final Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter()).create();
     protected static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
     protected TaskManager taskManager;
     protected String response;
@@ -38,4 +41,21 @@ public class BaseHandler implements HttpHandler{
     protected String readText(HttpExchange httpExchange) throws IOException {
         return new String(httpExchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
     }
+
+    // the raw query is split first, so an encoded '&' or '=' stays inside its value
+    protected Map<String, String> queryParams(HttpExchange httpExchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = httpExchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, index), DEFAULT_CHARSET),
+                        URLDecoder.decode(pair.substring(index + 1), DEFAULT_CHARSET));
+            }
+        }
+        return params;
+    }
 }
@@ -3,6 +3,7 @@ package main.http.handlers;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import main.managers.TaskManager;
+import main.status.Status;
 import main.tasks.Epic;
 
 import java.io.IOException;
@@ -25,6 +26,15 @@ public class EpicHandler extends BaseHandler {
                     String jsonString = gson.toJson(taskManager.getAllEpics());
                     System.out.println("GET EPICS: " + jsonString);
                     response = gson.toJson(jsonString);
+                } else if (query.contains("status=")) {
+                    try {
+                        Status status = Status.valueOf(queryParams(exchange).get("status"));
+                        statusCode = 200;
+                        response = gson.toJson(taskManager.getEpicsByStatus(status));
+                    } catch (IllegalArgumentException e) {
+                        statusCode = 400;
+                        response = "  ";
+                    }
                 } else {
                     try {
                         int id = Integer.parseInt(query.substring(query.indexOf("id=") + 3));
@@ -4,8 +4,12 @@ import com.sun.net.httpserver.HttpExchange;
 import main.managers.TaskManager;
 
 import java.io.IOException;
+import java.util.Map;
+
 public class HistoryHandler extends BaseHandler {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     public HistoryHandler(TaskManager taskManager) {
         super(taskManager);
     }
@@ -20,8 +24,21 @@ public class HistoryHandler extends BaseHandler {
 
         switch (method) {
             case "GET":
-                statusCode = 200;
-                response = gson.toJson(taskManager.getHistory());
+                Map<String, String> params = queryParams(httpExchange);
+                if (params.isEmpty()) {
+                    statusCode = 200;
+                    response = gson.toJson(taskManager.getHistory());
+                    break;
+                }
+                try {
+                    int offset = params.containsKey("offset") ? Integer.parseInt(params.get("offset")) : 0;
+                    int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+                    statusCode = 200;
+                    response = gson.toJson(taskManager.getRecentHistory(offset, limit));
+                } catch (NumberFormatException e) {
+                    statusCode = 400;
+                    response = "   ";
+                }
                 break;
             default:
                 statusCode = 405;
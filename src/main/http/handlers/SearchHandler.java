@@ -0,0 +1,52 @@
+package main.http.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.managers.TaskManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+public class SearchHandler extends BaseHandler {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    public SearchHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+        int statusCode;
+        String method = httpExchange.getRequestMethod();
+        String path = String.valueOf(httpExchange.getRequestURI());
+
+        System.out.println("  " + path + "   " + method);
+
+        switch (method) {
+            case "GET":
+                Map<String, String> params = queryParams(httpExchange);
+                String query = params.get("q");
+                if (query == null || query.isBlank()) {
+                    statusCode = 400;
+                    response = "     q";
+                    break;
+                }
+                try {
+                    int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+                    statusCode = 200;
+                    response = gson.toJson(taskManager.search(query, limit));
+                } catch (NumberFormatException e) {
+                    statusCode = 400;
+                    response = "   limit";
+                }
+                break;
+            default:
+                statusCode = 405;
+                response = " ";
+        }
+
+        httpExchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + DEFAULT_CHARSET);
+        httpExchange.sendResponseHeaders(statusCode, 0);
+        writers(httpExchange);
+    }
+}
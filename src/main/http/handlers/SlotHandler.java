@@ -0,0 +1,52 @@
+package main.http.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.managers.TaskManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+public class SlotHandler extends BaseHandler {
+
+    public SlotHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+        int statusCode;
+        String method = httpExchange.getRequestMethod();
+        String path = String.valueOf(httpExchange.getRequestURI());
+
+        System.out.println("  " + path + "   " + method);
+
+        switch (method) {
+            case "GET":
+                Map<String, String> params = queryParams(httpExchange);
+                if (!params.containsKey("from") || !params.containsKey("duration")) {
+                    statusCode = 400;
+                    response = "     from  duration";
+                    break;
+                }
+                try {
+                    LocalDateTime from = LocalDateTime.parse(params.get("from"));
+                    int duration = Integer.parseInt(params.get("duration"));
+                    statusCode = 200;
+                    response = gson.toJson(String.valueOf(taskManager.findFreeSlot(from, duration)));
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    statusCode = 400;
+                    response = "   ";
+                }
+                break;
+            default:
+                statusCode = 405;
+                response = " ";
+        }
+
+        httpExchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + DEFAULT_CHARSET);
+        httpExchange.sendResponseHeaders(statusCode, 0);
+        writers(httpExchange);
+    }
+}
@@ -3,6 +3,7 @@ package main.http.handlers;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import main.managers.TaskManager;
+import main.status.Status;
 import main.tasks.Subtask;
 
 import java.io.IOException;
@@ -24,6 +25,15 @@ public class SubtaskHandler extends BaseHandler {
                 if (query == null) {
                     statusCode = 200;
                     response = gson.toJson(taskManager.getAllSubtasks());
+                } else if (query.contains("status=")) {
+                    try {
+                        Status status = Status.valueOf(queryParams(exchange).get("status"));
+                        statusCode = 200;
+                        response = gson.toJson(taskManager.getSubtasksByStatus(status));
+                    } catch (IllegalArgumentException e) {
+                        statusCode = 400;
+                        response = "  ";
+                    }
                 } else {
                     try {
                         int id = Integer.parseInt(query.substring(query.indexOf("id=") + 3));
@@ -55,7 +65,12 @@ public class SubtaskHandler extends BaseHandler {
                 try {
                     Subtask subtask = gson.fromJson(bodyRequest, Subtask.class);
                     Integer id = subtask.getId();
-                    if (subtask != null) {
+                    String postQuery = exchange.getRequestURI().getQuery();
+                    if (postQuery != null && postQuery.contains("auto=true")) {
+                        Subtask placed = taskManager.addSubtaskAutoPlaced(subtask);
+                        statusCode = 201;
+                        response = "   id=" + placed.getId() + "   " + placed.getStartTime();
+                    } else if (subtask != null) {
                         taskManager.updateTask(subtask);
                         statusCode = 200;
                         response = "  id=" + id + " ";
@@ -3,6 +3,7 @@ package main.http.handlers;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import main.managers.TaskManager;
+import main.status.Status;
 import main.tasks.Task;
 
 import java.io.IOException;
@@ -29,6 +30,15 @@ public class TaskHandler extends BaseHandler {
                     String jsonString = gson.toJson(taskManager.getAllTasks());
                     System.out.println("GET TASKS: " + jsonString);
                     response = gson.toJson(jsonString);
+                } else if (query.contains("status=")) {
+                    try {
+                        Status status = Status.valueOf(queryParams(httpExchange).get("status"));
+                        statusCode = 200;
+                        response = gson.toJson(taskManager.getTasksByStatus(status));
+                    } catch (IllegalArgumentException e) {
+                        statusCode = 400;
+                        response = "  ";
+                    }
                 } else {
                     try {
                         int id = Integer.parseInt(query.substring(query.indexOf("id=") + 3));
@@ -60,7 +70,12 @@ public class TaskHandler extends BaseHandler {
                 try {
                     Task task = gson.fromJson(bodyRequest, Task.class);
                     Integer id = task.getId();
-                    if (task != null) {
+                    String postQuery = httpExchange.getRequestURI().getQuery();
+                    if (postQuery != null && postQuery.contains("auto=true")) {
+                        Task placed = taskManager.addTaskAutoPlaced(task);
+                        statusCode = 201;
+                        response = "   id=" + placed.getId() + "   " + placed.getStartTime();
+                    } else if (task != null) {
                         taskManager.updateTask(task);
                         statusCode = 201;
                         response = "  id=" + id + " ";
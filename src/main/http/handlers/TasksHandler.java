@@ -4,9 +4,14 @@ import com.sun.net.httpserver.HttpExchange;
 import main.managers.TaskManager;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
 
 public class TasksHandler extends BaseHandler {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     public TasksHandler(TaskManager taskManager) {
         super(taskManager);
     }
@@ -21,8 +26,49 @@ public class TasksHandler extends BaseHandler {
 
         switch (method) {
             case "GET":
-                statusCode = 200;
-                response = gson.toJson(taskManager.getPrioritizedTasks());
+                Map<String, String> params = queryParams(httpExchange);
+                if (params.isEmpty()) {
+                    statusCode = 200;
+                    response = gson.toJson(taskManager.getPrioritizedTasks());
+                    break;
+                }
+                if (params.containsKey("to")) {
+                    if (!params.containsKey("from")) {
+                        statusCode = 400;
+                        response = "     from";
+                        break;
+                    }
+                    try {
+                        LocalDateTime from = LocalDateTime.parse(params.get("from"));
+                        LocalDateTime to = LocalDateTime.parse(params.get("to"));
+                        if (to.isBefore(from)) {
+                            statusCode = 400;
+                            response = " to      from";
+                            break;
+                        }
+                        statusCode = 200;
+                        response = gson.toJson(taskManager.getTasksInRange(from, to));
+                    } catch (DateTimeParseException e) {
+                        statusCode = 400;
+                        response = "   ";
+                    }
+                    break;
+                }
+                try {
+                    int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+                    if (params.containsKey("after")) {
+                        int after = Integer.parseInt(params.get("after"));
+                        response = gson.toJson(taskManager.getPrioritizedTasksAfter(after, limit));
+                    } else {
+                        LocalDateTime from = params.containsKey("from")
+                                ? LocalDateTime.parse(params.get("from")) : LocalDateTime.MIN;
+                        response = gson.toJson(taskManager.getPrioritizedTasks(from, limit));
+                    }
+                    statusCode = 200;
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    statusCode = 400;
+                    response = "   ";
+                }
                 break;
             default:
                 statusCode = 405;
@@ -0,0 +1,157 @@
+package main.managers;
+
+import main.tasks.Task;
+import main.util.IntIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+// History as a doubly linked list over preallocated slot arrays: links are slot indexes and ids map
+// to slots in a primitive table, so a view allocates nothing once the slots are in place.
+// Freed slots are chained through next[] and reused before new ones.
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+    private static final int INITIAL_SLOTS = 16;
+
+    private final int capacity;
+    private final IntIntHashMap slots;
+    private Task[] tasks;
+    private int[] ids;
+    private int[] prev;
+    private int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE;
+    private int allocated;
+    private int size;
+    private List<Task> history;
+
+    public ArrayHistoryManager() {
+        this(InMemoryHistoryManager.UNBOUNDED);
+    }
+
+    // a bounded history preallocates all of its slots; an unbounded one doubles them as it grows
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int initial = capacity == InMemoryHistoryManager.UNBOUNDED ? INITIAL_SLOTS : capacity;
+        this.slots = new IntIntHashMap(initial);
+        this.tasks = new Task[initial];
+        this.ids = new int[initial];
+        this.prev = new int[initial];
+        this.next = new int[initial];
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            System.out.println("Non-existent task.");
+            return;
+        }
+        int id = task.getId();
+        int slot = slots.get(id);
+        if (slot != IntIntHashMap.MISSING) {
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                slot = head;
+                unlink(slot);
+                slots.remove(ids[slot]);
+            } else {
+                slot = allocate();
+                size++;
+            }
+            ids[slot] = id;
+            slots.put(id, slot);
+        }
+        tasks[slot] = task;
+        linkLast(slot);
+        history = null;
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = slots.remove(id);
+        if (slot == IntIntHashMap.MISSING) {
+            return;
+        }
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+        history = null;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (history == null) {
+            List<Task> list = new ArrayList<>(size);
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                list.add(tasks[slot]);
+            }
+            history = Collections.unmodifiableList(list);
+        }
+        return history;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void visitRecent(int limit, Predicate<? super Task> visitor) {
+        int slot = tail;
+        for (int i = 0; i < limit && slot != NONE && visitor.test(tasks[slot]); i++) {
+            slot = prev[slot];
+        }
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (allocated == tasks.length) {
+            int grown = tasks.length * 2;
+            tasks = Arrays.copyOf(tasks, grown);
+            ids = Arrays.copyOf(ids, grown);
+            prev = Arrays.copyOf(prev, grown);
+            next = Arrays.copyOf(next, grown);
+        }
+        return allocated++;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NONE) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NONE) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+    }
+}
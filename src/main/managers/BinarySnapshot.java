@@ -0,0 +1,177 @@
+package main.managers;
+
+import main.status.Status;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import main.util.TaskType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Binary form of the manager state:
+//   int magic, int version
+//   int string count, then per string: int byte length, UTF-8 bytes
+//   int record count, then per record: int body length, body
+//   int history count, then the history ids oldest first
+// A record body is byte type, int id, byte status (ordinal + 1, 0 for none), int epic id, long start key
+// (Task.NO_TIME for none), int duration, int name and int description string indexes (-1 for null).
+// Each name and description is stored once. Readers skip what follows the fields they know in a body, so a
+// later version can append fields.
+public class BinarySnapshot {
+    private static final int MAGIC = 0x54534B53;
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+    private static final int RECORD_LENGTH = 1 + 4 + 1 + 4 + 8 + 4 + 4 + 4;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    // items are written in the given order, so epics have to precede their subtasks
+    public static void write(Path path, List<? extends Task> items, List<Integer> history) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (Task task : items) {
+            intern(task.getName(), strings, table);
+            intern(task.getDescription(), strings, table);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(table.size());
+            for (String value : table) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(items.size());
+            for (Task task : items) {
+                out.writeInt(RECORD_LENGTH);
+                out.writeByte(task.getType().ordinal());
+                out.writeInt(task.getId());
+                out.writeByte(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+                out.writeInt(task instanceof Subtask ? ((Subtask) task).getEpicId() : 0);
+                out.writeLong(task.getStartKey());
+                out.writeInt(task.getDuration());
+                out.writeInt(indexOf(task.getName(), strings));
+                out.writeInt(indexOf(task.getDescription(), strings));
+            }
+            out.writeInt(history.size());
+            for (int id : history) {
+                out.writeInt(id);
+            }
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Maps the file and decodes it in place: numbers are read straight from the mapping, and the only
+    // Strings made are the string table's, one per distinct value.
+    public static void read(Path path, Consumer<Task> items, IntConsumer history) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            decode(buffer, items, history);
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged snapshot " + path, e);
+        }
+    }
+
+    private static void decode(ByteBuffer buffer, Consumer<Task> items, IntConsumer history) throws IOException {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a task snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        String[] table = new String[buffer.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            int length = buffer.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            table[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        int records = buffer.getInt();
+        for (int i = 0; i < records; i++) {
+            int length = buffer.getInt();
+            int next = buffer.position() + length;
+            TaskType type = TYPES[buffer.get()];
+            int id = buffer.getInt();
+            int statusCode = buffer.get();
+            Status status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+            int epicId = buffer.getInt();
+            long start = buffer.getLong();
+            int duration = buffer.getInt();
+            String name = string(table, buffer.getInt());
+            String description = string(table, buffer.getInt());
+            Task task;
+            switch (type) {
+                case EPIC:
+                    task = new Epic(description, name, status);
+                    break;
+                case SUBTASK:
+                    task = new Subtask(description, name, status, epicId, null, duration);
+                    break;
+                default:
+                    task = new Task(description, name, status, null, duration);
+            }
+            task.setId(id);
+            task.setStatus(status);
+            if (type != TaskType.EPIC && start != Task.NO_TIME) {
+                task.setStartKey(start);
+            }
+            items.accept(task);
+            buffer.position(next);
+        }
+        int views = buffer.getInt();
+        for (int i = 0; i < views; i++) {
+            history.accept(buffer.getInt());
+        }
+    }
+
+    private static void intern(String value, Map<String, Integer> strings, List<String> table) {
+        if (value != null && !strings.containsKey(value)) {
+            strings.put(value, table.size());
+            table.add(value);
+        }
+    }
+
+    private static int indexOf(String value, Map<String, Integer> strings) {
+        return value == null ? NONE : strings.get(value);
+    }
+
+    private static String string(String[] table, int index) {
+        return index == NONE ? null : table[index];
+    }
+}
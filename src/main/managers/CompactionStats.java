@@ -0,0 +1,60 @@
+package main.managers;
+
+import java.time.Duration;
+
+// Counters for journal snapshots. Bytes reclaimed are the sizes of the deleted segments and the replaced
+// snapshot minus the size of the new snapshot, so an early snapshot can reclaim a negative amount.
+public class CompactionStats {
+    public static final CompactionStats NONE = new CompactionStats(0, 0, 0, 0, 0);
+
+    private final long snapshots;
+    private final long lastNanos;
+    private final long totalNanos;
+    private final long lastBytesReclaimed;
+    private final long totalBytesReclaimed;
+
+    private CompactionStats(long snapshots, long lastNanos, long totalNanos, long lastBytesReclaimed,
+                            long totalBytesReclaimed) {
+        this.snapshots = snapshots;
+        this.lastNanos = lastNanos;
+        this.totalNanos = totalNanos;
+        this.lastBytesReclaimed = lastBytesReclaimed;
+        this.totalBytesReclaimed = totalBytesReclaimed;
+    }
+
+    CompactionStats record(long nanos, long bytesReclaimed) {
+        return new CompactionStats(snapshots + 1, nanos, totalNanos + nanos, bytesReclaimed,
+                totalBytesReclaimed + bytesReclaimed);
+    }
+
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    public Duration getLastDuration() {
+        return Duration.ofNanos(lastNanos);
+    }
+
+    public Duration getTotalDuration() {
+        return Duration.ofNanos(totalNanos);
+    }
+
+    public long getLastBytesReclaimed() {
+        return lastBytesReclaimed;
+    }
+
+    public long getTotalBytesReclaimed() {
+        return totalBytesReclaimed;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionStats{" +
+                "snapshots=" + snapshots +
+                ", lastDuration=" + getLastDuration().toMillis() + "ms" +
+                ", totalDuration=" + getTotalDuration().toMillis() + "ms" +
+                ", lastBytesReclaimed=" + lastBytesReclaimed +
+                ", totalBytesReclaimed=" + totalBytesReclaimed +
+                '}';
+    }
+}
@@ -0,0 +1,382 @@
+package main.managers;
+
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Lookups by id go straight to concurrent maps; list reads come from the shared snapshot, which a reader
+// that finds it stale rebuilds without holding up writers. Writes lock the stripe of their epic (or task),
+// and checks against the shared schedule are serialized by a short schedule lock. A snapshot holds every
+// write that returned before it was built and may hold part of a write still running on another stripe.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+    private final Object scheduleLock = new Object();
+    private final Object idLock = new Object();
+    private final Object textLock = new Object();
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_STRIPES);
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager, int stripeCount) {
+        super(historyManager instanceof SessionHistoryManager
+                ? historyManager : new SynchronizedHistoryManager(historyManager), StorageMode.CONCURRENT);
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[Math.floorMod(id, stripes.length)];
+    }
+
+    private void write(int id, Runnable action) {
+        writeAndGet(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T writeAndGet(int id, Supplier<T> action) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A subtask write locks the stripe of the epic the subtask is stored under and the stripe of the epic
+    // the caller names, in stripe order as writeAll does. The stored epic is read again under the locks,
+    // and the write starts over if another writer moved the subtask in the meantime.
+    private void writeSubtask(int id, Integer epicId, Runnable action) {
+        while (true) {
+            Subtask stored = subtasks.get(id);
+            int storedEpicId = stored != null ? stored.getEpicId() : epicId != null ? epicId : id;
+            int first = Math.floorMod(storedEpicId, stripes.length);
+            int second = epicId == null ? first : Math.floorMod(epicId, stripes.length);
+            ReentrantLock low = stripes[Math.min(first, second)];
+            ReentrantLock high = stripes[Math.max(first, second)];
+            low.lock();
+            high.lock();
+            try {
+                Subtask current = subtasks.get(id);
+                if (current == null ? stored == null : stored != null && current.getEpicId() == storedEpicId) {
+                    action.run();
+                    return;
+                }
+            } finally {
+                high.unlock();
+                low.unlock();
+            }
+        }
+    }
+
+    private void writeAll(Runnable action) {
+        writeAllAndGet(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T writeAllAndGet(Supplier<T> action) {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    // The archiving pass locks every stripe, so each public write runs it once on entry, before it takes
+    // a stripe or the schedule lock; the base class's call from inside the locked part does nothing here.
+    @Override
+    protected void archiveIfDue() {
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        super.archiveIfDue();
+        return super.addTask(task);
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        super.archiveIfDue();
+        return super.addEpic(epic);
+    }
+
+    // a new item is placed under the stripe of its id, so it cannot land in the middle of a writeAll
+    @Override
+    protected Task insertTask(int newTaskId, Task task) {
+        return writeAndGet(newTaskId, () -> super.insertTask(newTaskId, task));
+    }
+
+    @Override
+    protected Epic insertEpic(int newEpicId, Epic epic) {
+        return writeAndGet(newEpicId, () -> super.insertEpic(newEpicId, epic));
+    }
+
+    @Override
+    public int generateId() {
+        synchronized (idLock) {
+            return super.generateId();
+        }
+    }
+
+    @Override
+    protected int generateIds(int count) {
+        synchronized (idLock) {
+            return super.generateIds(count);
+        }
+    }
+
+    @Override
+    public Integer getId() {
+        synchronized (idLock) {
+            return super.getId();
+        }
+    }
+
+    @Override
+    protected void schedule(Task previous, Task task) {
+        synchronized (scheduleLock) {
+            super.schedule(previous, task);
+        }
+    }
+
+    @Override
+    protected void addPrioritized(Task task) {
+        synchronized (scheduleLock) {
+            super.addPrioritized(task);
+        }
+    }
+
+    @Override
+    protected void addAllPrioritized(List<Task> sorted) {
+        synchronized (scheduleLock) {
+            super.addAllPrioritized(sorted);
+        }
+    }
+
+    @Override
+    protected void removePrioritized(Task task) {
+        synchronized (scheduleLock) {
+            super.removePrioritized(task);
+        }
+    }
+
+    @Override
+    public void validation(Task task) {
+        synchronized (scheduleLock) {
+            super.validation(task);
+        }
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime from, int duration) {
+        synchronized (scheduleLock) {
+            return super.findFreeSlot(from, duration);
+        }
+    }
+
+    @Override
+    protected List<Integer> findIntersecting(long from, long to) {
+        synchronized (scheduleLock) {
+            return super.findIntersecting(from, to);
+        }
+    }
+
+    @Override
+    public long getBookedMinutes(LocalDate from, LocalDate to) {
+        synchronized (scheduleLock) {
+            return super.getBookedMinutes(from, to);
+        }
+    }
+
+    @Override
+    public List<LocalDate> getOverbookedDays(LocalDate from, LocalDate to, int capacityMinutes) {
+        synchronized (scheduleLock) {
+            return super.getOverbookedDays(from, to, capacityMinutes);
+        }
+    }
+
+    // The slot stays free until the task is placed because the schedule lock is held across both steps.
+    // The stripe is taken first, as every other write takes its stripe before the schedule lock.
+    @Override
+    public Task addTaskAutoPlaced(Task task) {
+        super.archiveIfDue();
+        int newTaskId = generateId();
+        return writeAndGet(newTaskId, () -> {
+            synchronized (scheduleLock) {
+                place(task);
+                return super.insertTask(newTaskId, task);
+            }
+        });
+    }
+
+    @Override
+    public Subtask addSubtaskAutoPlaced(Subtask subtask) {
+        super.archiveIfDue();
+        return writeAndGet(subtask.getEpicId(), () -> {
+            synchronized (scheduleLock) {
+                place(subtask);
+                return super.addSubtask(subtask);
+            }
+        });
+    }
+
+    @Override
+    protected void indexText(Task task) {
+        synchronized (textLock) {
+            super.indexText(task);
+        }
+    }
+
+    @Override
+    protected void unindexText(int id) {
+        synchronized (textLock) {
+            super.unindexText(id);
+        }
+    }
+
+    @Override
+    protected List<Integer> searchIds(String query, int limit) {
+        synchronized (textLock) {
+            return super.searchIds(query, limit);
+        }
+    }
+
+    // the whole batch is checked and placed under one hold of the schedule lock
+    @Override
+    public List<Task> addTasks(List<Task> batch) {
+        super.archiveIfDue();
+        return writeAllAndGet(() -> {
+            synchronized (scheduleLock) {
+                return super.addTasks(batch);
+            }
+        });
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task.getId() == null) {
+            return;
+        }
+        super.archiveIfDue();
+        write(task.getId(), () -> super.updateTask(task));
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        super.archiveIfDue();
+        write(id, () -> super.removeTaskById(id));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            throw new IllegalArgumentException("Updated epic cannot be null");
+        }
+        if (epic.getId() == null) {
+            return;
+        }
+        super.archiveIfDue();
+        write(epic.getId(), () -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        super.archiveIfDue();
+        write(id, () -> super.removeEpicById(id));
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        super.archiveIfDue();
+        return writeAndGet(subtask.getEpicId(), () -> super.addSubtask(subtask));
+    }
+
+    @Override
+    public List<Subtask> addSubtasks(List<Subtask> batch) {
+        super.archiveIfDue();
+        return writeAllAndGet(() -> {
+            synchronized (scheduleLock) {
+                return super.addSubtasks(batch);
+            }
+        });
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask.getId() == null) {
+            return;
+        }
+        super.archiveIfDue();
+        writeSubtask(subtask.getId(), subtask.getEpicId(), () -> super.updateSubtask(subtask));
+    }
+
+    @Override
+    public void removeSubtaskById(int id) {
+        super.archiveIfDue();
+        writeSubtask(id, null, () -> super.removeSubtaskById(id));
+    }
+
+    @Override
+    public void removeAllTasks() {
+        writeAll(super::removeAllTasks);
+    }
+
+    @Override
+    public void removeAllEpics() {
+        writeAll(super::removeAllEpics);
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        writeAll(super::removeAllSubtasks);
+    }
+
+    @Override
+    public int removeTasksIf(Predicate<? super Task> filter) {
+        return writeAllAndGet(() -> super.removeTasksIf(filter));
+    }
+
+    @Override
+    public int removeEpicsIf(Predicate<? super Epic> filter) {
+        return writeAllAndGet(() -> super.removeEpicsIf(filter));
+    }
+
+    @Override
+    public int removeSubtasksIf(Predicate<? super Subtask> filter) {
+        return writeAllAndGet(() -> super.removeSubtasksIf(filter));
+    }
+
+    @Override
+    public void enableArchive(Path directory, Duration age, Clock clock) {
+        writeAll(() -> super.enableArchive(directory, age, clock));
+    }
+
+    @Override
+    public int archiveDone() {
+        return writeAllAndGet(super::archiveDone);
+    }
+}
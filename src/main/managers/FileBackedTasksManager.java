@@ -5,17 +5,37 @@ import main.status.Status;
 import main.tasks.Epic;
 import main.tasks.Subtask;
 import main.tasks.Task;
+import main.util.IntArrayList;
 import main.util.TaskType;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 
@@ -23,11 +43,33 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     private File file;
     private static final String HEADER_CSV_FILE = "id,type,name,status,description,starttime,endtime,duration,epic\n";
     private final static DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm - dd.MM.yyyy");
+    // the active log is sealed and snapshotted once it holds this many records and twice as many as the live state needs
+    private static final int COMPACT_THRESHOLD = 10_000;
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private boolean binary;
+    private boolean loading;
+    private TaskJournal journal;
+    private JournalWriter writer;
+    private ExecutorService snapshots;
+    private Future<?> pendingSnapshot;
+    private long snapshotIntervalNanos;
+    private long lastSnapshot;
 
     public FileBackedTasksManager(HistoryManager historyManager, File file) {
+        this(historyManager, file, PersistenceMode.SNAPSHOT);
+    }
+
+    // in BINARY mode the file is a BinarySnapshot instead of the CSV; in JOURNAL mode it is an operation log:
+    // every change appends records instead of rewriting the file, and snapshots and sealed segments of the log
+    // are kept next to it
+    public FileBackedTasksManager(HistoryManager historyManager, File file, PersistenceMode mode) {
         super(historyManager);
         this.file = file;
         this.epics = new HashMap<>();
+        this.binary = mode == PersistenceMode.BINARY;
+        if (mode == PersistenceMode.JOURNAL) {
+            journal = new TaskJournal(file.toPath());
+        }
     }
 
     public FileBackedTasksManager(HistoryManager historyManager) {
@@ -35,6 +77,28 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     }
 
     public void loadFromFile() {
+        loading = true;
+        try {
+            load();
+        } finally {
+            loading = false;
+        }
+    }
+
+    private void load() {
+        if (journal != null) {
+            replayJournal();
+            return;
+        }
+        if (binary) {
+            try {
+                BinarySnapshot.read(file.toPath(), this::restore, this::addToHistory);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Could not read snapshot", e);
+            }
+            modified();
+            return;
+        }
         try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
 
             String line = bufferedReader.readLine();
@@ -43,44 +107,406 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
                 if (line.isEmpty()) {
                     break;
                 }
-                Task task = fromString(line);
-                if(task.getId() > super.id) {super.id = task.getId();}
+                restore(fromString(line));
+            }
 
-                switch (task.getType()){
-                    case EPIC:
-                        epics.put(task.getId(), (Epic) task);
-                        findStartTimeAndDurationOfEpic((Epic) task);
-                        break;
-                    case SUBTASK:
-                            Epic epic = epics.get(((Subtask) task).getEpicId());
-
-                        if (epic != null) {
-                            subtasks.put(task.getId(), (Subtask) task);
-                            epic.addSubtaskIds(task.getId());
-                            getPrioritizedTasks().add(task);
-                            updateStatusEpic(epic);
-                            findStartTimeAndDurationOfEpic(epic);
-                        } else {
-                            System.out.println("Epic not found");
+            String lineWithHistory = bufferedReader.readLine();
+            for (int id : historyFromString(lineWithHistory)) {
+                addToHistory(id);
+            }
+            modified();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read data from file");
+        }
+    }
+
+    public void bulkLoadFromFile() {
+        bulkLoadFromFile(ForkJoinPool.commonPool());
+    }
+
+    // Loads a CSV in the loadFromFile layout on a fork-join pool: the file is mapped, the data lines between
+    // the header and the blank line are cut into line-aligned chunks that are parsed in parallel, and the
+    // parsed items go into the manager in one bulk pass.
+    public void bulkLoadFromFile(ForkJoinPool pool) {
+        List<Task> items;
+        String history;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("File is too large to map: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = buffer.limit();
+            int dataStart = Math.min(nextLine(buffer, 0), end);
+            // as in loadFromFile, the data ends at the first blank line and the line after it holds the history
+            int dataEnd = dataStart;
+            while (dataEnd < end && !isBlankLine(buffer, dataEnd)) {
+                dataEnd = Math.min(nextLine(buffer, dataEnd), end);
+            }
+            int historyStart = Math.min(nextLine(buffer, dataEnd), end);
+            history = decode(buffer, historyStart, Math.min(nextLine(buffer, historyStart) - 1, end)).trim();
+            int chunkSize = Math.max(MIN_CHUNK_BYTES, (dataEnd - dataStart) / (pool.getParallelism() * 4) + 1);
+            IntArrayList bounds = new IntArrayList();
+            bounds.addInt(dataStart);
+            for (int position = dataStart; position < dataEnd; ) {
+                position = Math.min(nextLine(buffer, Math.min(position + chunkSize, dataEnd) - 1), dataEnd);
+                bounds.addInt(position);
+            }
+            items = pool.invoke(new ChunkParser(buffer, bounds, 0, bounds.size() - 1));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read data from file", e);
+        }
+        restoreAll(items);
+        for (int id : historyFromString(history.isEmpty() ? null : history)) {
+            addToHistory(id);
+        }
+    }
+
+    // position after the newline at or after the given one
+    private static int nextLine(ByteBuffer buffer, int position) {
+        while (position < buffer.limit() && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static boolean isBlankLine(ByteBuffer buffer, int position) {
+        byte first = buffer.get(position);
+        return first == '\n' || first == '\r' && (position + 1 == buffer.limit() || buffer.get(position + 1) == '\n');
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.duplicate().position(from).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // parses the chunks between bounds[from] and bounds[to], splitting the range until one chunk is left
+    private static class ChunkParser extends RecursiveTask<List<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final IntArrayList bounds;
+        private final int from;
+        private final int to;
+
+        private ChunkParser(ByteBuffer buffer, IntArrayList bounds, int from, int to) {
+            this.buffer = buffer;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            if (to - from <= 1) {
+                List<Task> parsed = new ArrayList<>();
+                if (to > from) {
+                    String text = decode(buffer, bounds.getInt(from), bounds.getInt(to));
+                    for (int start = 0, next; start < text.length(); start = next + 1) {
+                        next = text.indexOf('\n', start);
+                        if (next < 0) {
+                            next = text.length();
+                        }
+                        if (next > start) {
+                            Task task = fromString(text.substring(start, next));
+                            if (task != null) {
+                                parsed.add(task);
+                            }
                         }
+                    }
+                }
+                return parsed;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkParser right = new ChunkParser(buffer, bounds, middle, to);
+            right.fork();
+            List<Task> parsed = new ChunkParser(buffer, bounds, from, middle).compute();
+            parsed.addAll(right.join());
+            return parsed;
+        }
+    }
+
+    // puts a loaded item back under its own id
+    private void restore(Task task) {
+        if(task.getId() > super.id) {super.id = task.getId();}
+
+        switch (task.getType()){
+            case EPIC:
+                adoptSubtaskIds((Epic) task);
+                epics.put(task.getId(), (Epic) task);
+                index(task);
+                findStartTimeAndDurationOfEpic((Epic) task);
+                break;
+            case SUBTASK:
+                    Epic epic = epics.get(((Subtask) task).getEpicId());
+
+                if (epic != null) {
+                    subtasks.put(task.getId(), (Subtask) task);
+                    index(task);
+                    linkSubtask(epic, (Subtask) task);
+                    setPrioritizedTasks(task);
+                    updateStatusEpic(epic);
+                    findStartTimeAndDurationOfEpic(epic);
+                } else {
+                    System.out.println("Epic not found");
+                }
+                break;
+            default:
+                tasks.put(task.getId(), task);
+                index(task);
+                setPrioritizedTasks(task);
+
+        }
+    }
+
+    // replays through the in-memory operations, then rewrites the log so it starts compact and clean
+    private void replayJournal() {
+        try {
+            journal.replay(entry -> {
+                switch (entry.getOp()) {
+                    case PUT:
+                        replayPut(entry.getTask());
+                        break;
+                    case REMOVE_TASK:
+                        super.removeTaskById(entry.getId());
+                        break;
+                    case REMOVE_EPIC:
+                        super.removeEpicById(entry.getId());
+                        break;
+                    case REMOVE_SUBTASK:
+                        super.removeSubtaskById(entry.getId());
+                        break;
+                    case REMOVE_ALL_TASKS:
+                        super.removeAllTasks();
+                        break;
+                    case REMOVE_ALL_EPICS:
+                        super.removeAllEpics();
+                        break;
+                    case REMOVE_ALL_SUBTASKS:
+                        super.removeAllSubtasks();
                         break;
                     default:
-                        tasks.put(task.getId(), task);
-                        getPrioritizedTasks().add(task);
+                        addToHistory(entry.getId());
+                }
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read journal", e);
+        }
+        modified();
+        save();
+    }
 
+    private void replayPut(Task task) {
+        switch (task.getType()) {
+            case EPIC:
+                if (epics.containsKey(task.getId())) {
+                    super.updateEpic((Epic) task);
+                } else {
+                    ((Epic) task).getSubtaskIds().clear();
+                    restore(task);
+                }
+                break;
+            case SUBTASK:
+                if (subtasks.containsKey(task.getId())) {
+                    super.updateSubtask((Subtask) task);
+                } else {
+                    restore(task);
                 }
+                break;
+            default:
+                if (tasks.containsKey(task.getId())) {
+                    super.updateTask(task);
+                } else {
+                    restore(task);
+                }
+        }
+    }
+
+    private void record(TaskJournal.Op op, int id, Task task) {
+        if (journal == null) {
+            save();
+            return;
+        }
+        try {
+            commit(append(op, id, task));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not write journal", e);
+        }
+        compactIfNeeded();
+    }
+
+    // an update of an unknown id changes nothing and leaves nothing to log
+    private void recordPut(Task stored) {
+        if (stored == null) {
+            return;
+        }
+        record(TaskJournal.Op.PUT, stored.getId(), stored);
+    }
+
+    private void recordAll(List<? extends Task> items) {
+        if (journal == null) {
+            save();
+            return;
+        }
+        try {
+            long last = 0;
+            for (Task task : items) {
+                last = append(TaskJournal.Op.PUT, task.getId(), task);
             }
+            commit(last);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not write journal", e);
+        }
+        compactIfNeeded();
+    }
 
-            String lineWithHistory = bufferedReader.readLine();
-            for (int id : historyFromString(lineWithHistory)) {
-                addToHistory(id);
+    // the predicate cannot be logged, so the ids it removed are found by comparing the keys
+    private int recordRemovals(TaskJournal.Op op, Map<Integer, ? extends Task> storage, IntSupplier removal) {
+        if (journal == null) {
+            int removed = removal.getAsInt();
+            save();
+            return removed;
+        }
+        Set<Integer> before = new HashSet<>(storage.keySet());
+        int removed = removal.getAsInt();
+        before.removeAll(storage.keySet());
+        try {
+            long last = 0;
+            for (int id : before) {
+                last = append(op, id, null);
             }
+            commit(last);
         } catch (IOException e) {
-            throw new ManagerSaveException("Could not read data from file");
+            throw new ManagerSaveException("Could not write journal", e);
+        }
+        compactIfNeeded();
+        return removed;
+    }
+
+    // with group commit the record is formatted here, while the item cannot change, and written later
+    private long append(TaskJournal.Op op, int id, Task task) throws IOException {
+        if (writer != null) {
+            return writer.submit(TaskJournal.record(op, id, task));
         }
+        journal.append(op, id, task);
+        return 0;
+    }
+
+    private void commit(long sequence) throws IOException {
+        if (writer != null) {
+            writer.commit(sequence);
+        } else {
+            journal.flush();
+        }
+    }
+
+    private void compactIfNeeded() {
+        int size = journal.size();
+        if (snapshots != null) {
+            if (size > 0 && snapshotDone()
+                    && (size > COMPACT_THRESHOLD || System.nanoTime() - lastSnapshot >= snapshotIntervalNanos)) {
+                snapshotInBackground();
+            }
+            return;
+        }
+        int live = tasks.size() + epics.size() + subtasks.size() + historyManager.size();
+        if (size > COMPACT_THRESHOLD && size > 2 * live) {
+            save();
+        }
+    }
+
+    private void compactJournal() {
+        try {
+            long covered = seal();
+            journal.writeSnapshot(covered, view(getSnapshot(), copies(epics.values()), historyIds()));
+            lastSnapshot = System.nanoTime();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not write journal snapshot", e);
+        }
+    }
+
+    // The seal and a point-in-time capture run here: the versioned snapshot lists, copies of the epics, whose
+    // subtask lists later writes change in place, and the history ids. The snapshot thread formats the records.
+    private void snapshotInBackground() {
+        long covered;
+        try {
+            covered = seal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not seal journal", e);
+        }
+        TaskSnapshot state = getSnapshot();
+        List<Epic> epicCopies = copies(state.getEpics());
+        IntArrayList history = historyIds();
+        lastSnapshot = System.nanoTime();
+        pendingSnapshot = snapshots.submit(() -> {
+            journal.writeSnapshot(covered, view(state, epicCopies, history));
+            return null;
+        });
+    }
+
+    private long seal() throws IOException {
+        return writer != null ? writer.rotate() : journal.rotate();
+    }
+
+    private static List<Epic> copies(Collection<Epic> epics) {
+        List<Epic> copies = new ArrayList<>(epics.size());
+        for (Epic epic : epics) {
+            copies.add(new Epic(epic));
+        }
+        return copies;
+    }
+
+    // Records of a captured state, formatted as they are written. A task or subtask changed after the capture
+    // is also in a newer journal segment, which replays over whatever this record holds.
+    private static Stream<String> view(TaskSnapshot state, List<Epic> epics, IntArrayList history) {
+        Stream<Task> items = Stream.of(epics.stream(), state.getTasks().stream(), state.getSubtasks().stream())
+                .flatMap(stream -> stream);
+        return Stream.concat(
+                items.map(task -> TaskJournal.record(TaskJournal.Op.PUT, task.getId(), task)),
+                IntStream.range(0, history.size())
+                        .mapToObj(i -> TaskJournal.record(TaskJournal.Op.VIEW, history.getInt(i), null)));
+    }
+
+    // a failed background snapshot is reported to the next change; the journal still holds everything
+    private boolean snapshotDone() {
+        if (pendingSnapshot == null) {
+            return true;
+        }
+        if (!pendingSnapshot.isDone()) {
+            return false;
+        }
+        Future<?> finished = pendingSnapshot;
+        pendingSnapshot = null;
+        try {
+            finished.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new ManagerSaveException("Background snapshot failed", (IOException) e.getCause());
+            }
+            throw new ManagerSaveException("Background snapshot failed: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
     }
 
     public void save() {
+        if (journal != null) {
+            compactJournal();
+            return;
+        }
+        if (binary) {
+            List<Task> items = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+            items.addAll(tasks.values());
+            items.addAll(epics.values());
+            items.addAll(subtasks.values());
+            try {
+                BinarySnapshot.write(file.toPath(), items, historyIds());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Could not write snapshot", e);
+            }
+            return;
+        }
         try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
             writer.write(HEADER_CSV_FILE);
             if (super.getAllTasks().isEmpty()){
@@ -113,18 +539,108 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         }
     }
 
+    // Hands journal writes to a background thread that commits them in groups; interval is used by INTERVAL
+    // only. A manager is driven by one thread, so its changes are grouped under INTERVAL and ON_CLOSE, while
+    // under EVERY_OP each change still waits for a force of its own. JournalWriter lists what each policy
+    // keeps across a crash.
+    public void enableGroupCommit(SyncPolicy policy, Duration interval) {
+        if (journal == null) {
+            throw new IllegalStateException("Group commit needs JOURNAL persistence");
+        }
+        if (writer == null) {
+            writer = new JournalWriter(journal, policy, interval);
+        }
+    }
+
+    // Snapshots the state from a background thread once the interval has passed since the last one and
+    // the active log has records, or once it grows past the compaction threshold. Each snapshot seals the
+    // active log first, and loading then replays the snapshot and only the log written after it.
+    public void enableBackgroundSnapshots(Duration interval) {
+        if (journal == null) {
+            throw new IllegalStateException("Background snapshots need JOURNAL persistence");
+        }
+        snapshotIntervalNanos = interval.toNanos();
+        lastSnapshot = System.nanoTime();
+        if (snapshots == null) {
+            snapshots = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompactionStats getCompactionStats() {
+        return journal == null ? CompactionStats.NONE : journal.getCompactionStats();
+    }
+
+    // flush barrier: every change made before the call is on the device when it returns
+    public void awaitDurable() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (writer != null) {
+                writer.barrier();
+            } else {
+                journal.force();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not sync journal", e);
+        }
+    }
+
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (snapshots != null) {
+                snapshots.shutdown();
+                snapshots.awaitTermination(1, TimeUnit.MINUTES);
+                snapshots = null;
+                snapshotDone();
+            }
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            } else {
+                journal.force();
+            }
+            journal.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not close journal", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public FileWriter saveHistory(FileWriter writer) throws IOException {
-        for (int i = 0; i < super.getHistory().size(); i++) {
-            if(i+1 != super.getHistory().size()){
-                writer.write(super.getHistory().get(i).getId() + ",");
-            }else {
-                writer.write(String.valueOf(super.getHistory().get(i).getId()));
+        IntArrayList ids = historyIds();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                writer.write(",");
             }
+            writer.write(String.valueOf(ids.getInt(i)));
         }
         return writer;
     }
 
-    private Task fromString(String value) {
+    // history ids oldest first, the order loading replays them in; only the ids are collected
+    protected IntArrayList historyIds() {
+        IntArrayList ids = new IntArrayList();
+        historyManager.visitRecent(Integer.MAX_VALUE, task -> {
+            ids.addInt(task.getId());
+            return true;
+        });
+        IntArrayList oldestFirst = new IntArrayList();
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            oldestFirst.addInt(ids.getInt(i));
+        }
+        return oldestFirst;
+    }
+
+    private static Task fromString(String value) {
         String[] params = value.split(",");
 
         switch (TaskType.valueOf(params[1])){
@@ -160,91 +676,159 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     @Override
     public Task addTask(Task task)  {
         Task newTask = super.addTask(task);
-        save();
+        record(TaskJournal.Op.PUT, newTask.getId(), newTask);
         return newTask;
     }
 
     @Override
     public Epic addEpic(Epic epic) {
         Epic newEpic = super.addEpic(epic);
-        save();
+        record(TaskJournal.Op.PUT, newEpic.getId(), newEpic);
         return newEpic;
     }
 
     @Override
     public Subtask addSubtask(Subtask subtask) {
         Subtask newSubtask = super.addSubtask(subtask);
-        save();
+        if (newSubtask != null) {
+            record(TaskJournal.Op.PUT, newSubtask.getId(), newSubtask);
+        }
         return newSubtask;
     }
 
+    @Override
+    public List<Task> addTasks(List<Task> batch) {
+        List<Task> added = super.addTasks(batch);
+        recordAll(added);
+        return added;
+    }
+
+    @Override
+    public List<Subtask> addSubtasks(List<Subtask> batch) {
+        List<Subtask> added = super.addSubtasks(batch);
+        recordAll(added);
+        return added;
+    }
+
     @Override
     public void removeTaskById(int id) {
         super.removeTaskById(id);
-        save();
+        record(TaskJournal.Op.REMOVE_TASK, id, null);
     }
 
     @Override
     public void removeEpicById(int id) {
         super.removeEpicById(id);
-        save();
+        record(TaskJournal.Op.REMOVE_EPIC, id, null);
     }
 
     @Override
     public void removeSubtaskById(int id) {
         super.removeSubtaskById(id);
-        save();
+        record(TaskJournal.Op.REMOVE_SUBTASK, id, null);
     }
 
     @Override
     public void removeAllTasks() {
         super.removeAllTasks();
-        save();
+        record(TaskJournal.Op.REMOVE_ALL_TASKS, 0, null);
     }
 
     @Override
     public void removeAllEpics() {
         super.removeAllEpics();
-        save();
+        record(TaskJournal.Op.REMOVE_ALL_EPICS, 0, null);
     }
 
     @Override
     public void removeAllSubtasks() {
         super.removeAllSubtasks();
-        save();
+        record(TaskJournal.Op.REMOVE_ALL_SUBTASKS, 0, null);
+    }
+
+    @Override
+    public int removeTasksIf(Predicate<? super Task> filter) {
+        return recordRemovals(TaskJournal.Op.REMOVE_TASK, tasks, () -> super.removeTasksIf(filter));
+    }
+
+    @Override
+    public int removeEpicsIf(Predicate<? super Epic> filter) {
+        return recordRemovals(TaskJournal.Op.REMOVE_EPIC, epics, () -> super.removeEpicsIf(filter));
+    }
+
+    @Override
+    public int removeSubtasksIf(Predicate<? super Subtask> filter) {
+        return recordRemovals(TaskJournal.Op.REMOVE_SUBTASK, subtasks, () -> super.removeSubtasksIf(filter));
+    }
+
+    // loading only puts back what was saved; the archive is not swept and nothing is recorded
+    @Override
+    protected void archiveIfDue() {
+        if (!loading) {
+            super.archiveIfDue();
+        }
+    }
+
+    // a replayed remove-all must not reach items archived after it was logged; the tombstones it wrote
+    // then are already on disk
+    @Override
+    protected <T extends Task> int removeArchivedWhere(TaskType type, Predicate<? super T> filter) {
+        return loading ? 0 : super.removeArchivedWhere(type, filter);
+    }
+
+    @Override
+    protected void unarchived(List<Task> items) {
+        if (!loading) {
+            recordAll(items);
+        }
+    }
+
+    @Override
+    public int archiveDone() {
+        int archived = super.archiveDone();
+        if (archived > 0) {
+            save();
+        }
+        return archived;
     }
 
     @Override
     public Task getTaskById(int id) {
         Task task = super.getTaskById(id);
-        save();
+        record(TaskJournal.Op.VIEW, id, null);
         return task;
     }
 
     @Override
     public Epic getEpicById(int id) {
         Epic epic = super.getEpicById(id);
-        save();
+        record(TaskJournal.Op.VIEW, id, null);
         return epic;
     }
 
     @Override
     public Subtask getSubtaskById(int id) {
         Subtask subtask = super.getSubtaskById(id);
-        save();
+        record(TaskJournal.Op.VIEW, id, null);
         return subtask;
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        recordPut(tasks.get(task.getId()));
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        recordPut(epics.get(epic.getId()));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        super.updateSubtask(subtask);
+        recordPut(subtasks.get(subtask.getId()));
     }
 
     private static List<Integer> historyFromString(String value) {
@@ -2,6 +2,7 @@ package main.managers;
 
 import main.tasks.Task;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface HistoryManager {
     void add(Task task);
@@ -9,4 +10,10 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    // the length of getHistory() without building the list
+    int size();
+
+    // most recent first, up to limit entries or until the visitor returns false; nothing is copied
+    void visitRecent(int limit, Predicate<? super Task> visitor);
 }
\ No newline at end of file
@@ -4,18 +4,36 @@ import main.tasks.Task;
 import main.util.CustomLinkedList;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
     private final CustomLinkedList<Task> list;
+    private final int capacity;
+    private List<Task> history;
 
     public InMemoryHistoryManager() {
+        this(UNBOUNDED);
+    }
+
+    // once capacity entries are held, each new view evicts the oldest one
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
         this.list = new CustomLinkedList<>();
+        this.capacity = capacity;
     }
     @Override
     public void add(Task task){
         if(task != null) {
             remove(task.getId());
             list.linkLast(task);
+            if (list.size() > capacity) {
+                list.removeFirst();
+            }
+            history = null;
         } else {
             System.out.println("Non-existent task.");
         }
@@ -24,10 +42,24 @@ public class InMemoryHistoryManager implements HistoryManager {
     @Override
     public void remove(int id){
         list.remove(id);
+        history = null;
     }
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public void visitRecent(int limit, Predicate<? super Task> visitor) {
+        list.visitFromLast(limit, visitor);
+    }
+
     @Override
     public List<Task> getHistory(){
-        return list.getTasks();
+        if (history == null) {
+            history = Collections.unmodifiableList(list.getTasks());
+        }
+        return history;
     }
 }
 
@@ -1,36 +1,130 @@
 package main.managers;
 
+import main.exceptions.ManagerSaveException;
 import main.exceptions.ValidationException;
 import main.status.Status;
 import main.tasks.Epic;
 import main.tasks.Subtask;
 import main.tasks.Task;
+import main.util.BookingHistogram;
+import main.util.EpicAggregate;
+import main.util.IntIndexedList;
+import main.util.IntHashMap;
+import main.util.IntervalTree;
+import main.util.InvertedIndex;
+import main.util.StatusIndex;
+import main.util.TaskType;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public class InMemoryTaskManager implements TaskManager {
     protected int id = 0;
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected Map<Integer, Epic> epics = new HashMap<>();
+    protected final Map<Integer, Task> tasks;
+    protected final Map<Integer, Subtask> subtasks;
+    protected Map<Integer, Epic> epics;
     protected HistoryManager historyManager;
-    private final Set<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime,
-            Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Task::getId));
+    private static final Duration ARCHIVE_SWEEP = Duration.ofMinutes(1);
+    // compares the precomputed keys, so ordering allocates nothing; tasks without a start time go last
+    private static final Comparator<Task> PRIORITY_ORDER = (first, second) -> {
+        int result = Long.compare(first.getStartKey(), second.getStartKey());
+        return result != 0 ? result : Integer.compare(first.getId(), second.getId());
+    };
+    private final NavigableSet<Task> prioritizedTasks;
+    private final IntervalTree scheduleIndex = new IntervalTree();
+    private final BookingHistogram bookings = new BookingHistogram();
+    protected final Map<Integer, EpicAggregate> epicAggregates;
+    private final StorageMode storageMode;
+    private final StatusIndex statusIndex;
+    private final InvertedIndex textIndex = new InvertedIndex();
+    private final AtomicLong version = new AtomicLong();
+    private volatile TaskSnapshot snapshot = TaskSnapshot.EMPTY;
+    // collections changed since the cached snapshot was built, as TaskSnapshot flags
+    private final AtomicInteger changed = new AtomicInteger(TaskSnapshot.ALL);
+    // rebuilds are serialized so that concurrent readers never split the changed flags between them;
+    // writers never take it
+    private final Object snapshotLock = new Object();
+    // published last by enableArchive, so a writer that sees it also sees the age and the clock
+    private volatile TaskArchive archive;
+    private Duration archiveAge;
+    private Clock clock = Clock.systemDefaultZone();
+    private final AtomicLong nextSweep = new AtomicLong();
+    // when untimed tasks were first seen DONE, as IntervalTree keys; timed ones age from their end time
+    private final Map<Integer, Long> doneSince;
 
     public InMemoryTaskManager(HistoryManager historyManager) {
-        this.historyManager = historyManager;
+        this(historyManager, StorageMode.HASH_MAP);
     }
 
     public InMemoryTaskManager() {
-        this.historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory(), StorageMode.HASH_MAP);
+    }
+
+    // for subclasses that keep tasks and subtasks in their own storage; everything else is a plain HashMap
+    protected InMemoryTaskManager(HistoryManager historyManager, Map<Integer, Task> tasks,
+                                  Map<Integer, Subtask> subtasks) {
+        this.historyManager = historyManager;
+        this.storageMode = StorageMode.HASH_MAP;
+        this.statusIndex = new StatusIndex(false);
+        this.tasks = tasks;
+        this.subtasks = subtasks;
+        this.epics = new HashMap<>();
+        this.epicAggregates = new HashMap<>();
+        this.prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+        this.doneSince = new HashMap<>();
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager, StorageMode storageMode) {
+        this.historyManager = historyManager;
+        this.storageMode = storageMode;
+        this.statusIndex = new StatusIndex(storageMode == StorageMode.CONCURRENT);
+        this.doneSince = storageMode == StorageMode.CONCURRENT ? new ConcurrentHashMap<>() : new HashMap<>();
+        switch (storageMode) {
+            case COMPACT:
+                tasks = new IntHashMap<>();
+                subtasks = new IntHashMap<>();
+                epics = new IntHashMap<>();
+                epicAggregates = new IntHashMap<>();
+                prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+                break;
+            case CONCURRENT:
+                tasks = new ConcurrentHashMap<>();
+                subtasks = new ConcurrentHashMap<>();
+                epics = new ConcurrentHashMap<>();
+                epicAggregates = new ConcurrentHashMap<>();
+                prioritizedTasks = new ConcurrentSkipListSet<>(PRIORITY_ORDER);
+                break;
+            default:
+                tasks = new HashMap<>();
+                subtasks = new HashMap<>();
+                epics = new HashMap<>();
+                epicAggregates = new HashMap<>();
+                prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+        }
     }
 
     public int generateId() {
         return ++id;
     }
+
+    // reserves count consecutive ids and returns the first one
+    protected int generateIds(int count) {
+        int first = id + 1;
+        id += count;
+        return first;
+    }
     @Override
     public Integer getId() {
         return id;
@@ -38,11 +132,17 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Task addTask(Task task) {
-        int newTaskId = generateId();
+        archiveIfDue();
+        return insertTask(generateId(), task);
+    }
+
+    // the rest of addTask once the id is taken
+    protected Task insertTask(int newTaskId, Task task) {
         task.setId(newTaskId);
-        validation(task);
+        schedule(null, task);
         tasks.put(newTaskId, task);
-        prioritizedTasks.add(task);
+        index(task);
+        modified(TaskSnapshot.TASKS | TaskSnapshot.PRIORITIZED);
         return task;
     }
 
@@ -51,14 +151,35 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic.getId() <= 0) {
             throw new ValidationException("Invalid epic ID");
         }
-        int newEpicId = generateId();
+        archiveIfDue();
+        return insertEpic(generateId(), epic);
+    }
+
+    // the rest of addEpic once the id is taken
+    protected Epic insertEpic(int newEpicId, Epic epic) {
         epic.setId(newEpicId);
+        adoptSubtaskIds(epic);
         epics.put(newEpicId, epic);
+        index(epic);
         findStartTimeAndDurationOfEpic(epic);
+        modified(TaskSnapshot.EPICS);
         return epic;
     }
 
+    // An epic's subtask ids move into a list that removes by value in O(1). Concurrent storage keeps a
+    // copy-on-write list instead, which readers iterate without locks.
+    protected void adoptSubtaskIds(Epic epic) {
+        if (storageMode == StorageMode.CONCURRENT) {
+            if (!(epic.getSubtaskIds() instanceof CopyOnWriteArrayList)) {
+                epic.addSubtaskAllIds(new CopyOnWriteArrayList<>(epic.getSubtaskIds()));
+            }
+        } else if (!(epic.getSubtaskIds() instanceof IntIndexedList)) {
+            epic.addSubtaskAllIds(new IntIndexedList(epic.getSubtaskIds()));
+        }
+    }
+
     public Subtask addSubtask(Subtask subtask) {
+        archiveIfDue();
         int newSubtaskId = generateId();
 
         if (newSubtaskId < 0) {
@@ -69,12 +190,13 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(subtask.getEpicId());
 
         if (epic != null) {
-            validation(subtask);
+            schedule(null, subtask);
             subtasks.put(newSubtaskId, subtask);
-            epic.addSubtaskIds(newSubtaskId);
+            index(subtask);
+            linkSubtask(epic, subtask);
             updateStatusEpic(epic);
             findStartTimeAndDurationOfEpic(epic);
-            prioritizedTasks.add(subtask);
+            modified(TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
             return subtask;
         } else {
             System.out.println("Epic not found");
@@ -82,126 +204,653 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    @Override
+    public List<Task> addTasks(List<Task> batch) {
+        archiveIfDue();
+        validateBatch(batch);
+        int nextId = generateIds(batch.size());
+        for (Task task : batch) {
+            task.setId(nextId++);
+            addPrioritized(task);
+            tasks.put(task.getId(), task);
+            index(task);
+        }
+        modified(TaskSnapshot.TASKS | TaskSnapshot.PRIORITIZED);
+        return batch;
+    }
+
+    @Override
+    public List<Subtask> addSubtasks(List<Subtask> batch) {
+        archiveIfDue();
+        for (Subtask subtask : batch) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                throw new ValidationException("Epic not found: " + subtask.getEpicId());
+            }
+        }
+        validateBatch(batch);
+        int nextId = generateIds(batch.size());
+        Map<Integer, Epic> affectedEpics = new LinkedHashMap<>();
+        for (Subtask subtask : batch) {
+            subtask.setId(nextId++);
+            addPrioritized(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            index(subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            epic.addSubtaskIds(subtask.getId());
+            aggregateOf(epic).add(subtask);
+            affectedEpics.put(epic.getId(), epic);
+        }
+        for (Epic epic : affectedEpics.values()) {
+            updateStatusEpic(epic);
+            findStartTimeAndDurationOfEpic(epic);
+        }
+        modified(TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
+        return batch;
+    }
+
+    // one sort of the batch: neighbours are swept for overlaps with each other,
+    // then every timed item is checked against the existing schedule
+    protected void validateBatch(List<? extends Task> batch) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : batch) {
+            if (task.hasStartTime()) {
+                timed.add(task);
+            }
+        }
+        timed.sort(Comparator.comparingLong(Task::getStartKey));
+        Task latest = null;
+        for (Task task : timed) {
+            if (latest != null && task.getStartKey() < latest.getEndKey()) {
+                throw new ValidationException(task + " error validation: " + latest);
+            }
+            if (latest == null || task.getEndKey() > latest.getEndKey()) {
+                latest = task;
+            }
+            checkOverlap(task, 0);
+        }
+    }
 
     @Override
     public void removeTaskById(int id) {
-        if (tasks.containsKey(id)) {
-            prioritizedTasks.remove(tasks.get(id));
-            tasks.remove(id);
-            historyManager.remove(id);
-        } else {
+        archiveIfDue();
+        Task task = tasks.get(id);
+        if (task != null) {
+            dropTask(task);
+            modified(TaskSnapshot.TASKS | TaskSnapshot.PRIORITIZED);
+        } else if (!removeArchived(id, TaskType.TASK)) {
             System.out.println("Task not found");
         }
     }
 
     @Override
     public void removeEpicById(int id) {
+        archiveIfDue();
         Epic epic = epics.get(id);
         if (epic != null) {
-            for (Integer subtaskId : epic.getSubtaskIds()) {
-                prioritizedTasks.remove(subtasks.get(subtaskId));
-                subtasks.remove(subtaskId);
-                historyManager.remove(subtaskId);
-            }
-            historyManager.remove(id);
-            prioritizedTasks.remove(epics.get(id));
-
-            epics.remove(id);
-            //historyManager.remove(id);
-        } else {
+            dropEpic(epic);
+            modified(TaskSnapshot.EPICS | TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
+        } else if (!removeArchived(id, TaskType.EPIC)) {
             System.out.println("Epic not found");
         }
     }
 
     @Override
     public void removeSubtaskById(int id) {
+        archiveIfDue();
         Subtask subtask = subtasks.get(id);
         if (subtask != null) {
             Epic epic = epics.get(subtask.getEpicId());
             epic.getSubtaskIds().remove((Integer) subtask.getId());
+            aggregateOf(epic).remove(id);
             updateStatusEpic(epic);
-            subtasks.remove(id);
-            historyManager.remove(id);
-            prioritizedTasks.remove(subtask);
-        } else {
+            findStartTimeAndDurationOfEpic(epic);
+            dropSubtask(subtask);
+            modified(TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
+        } else if (!removeArchived(id, TaskType.SUBTASK)) {
             System.out.println("Subtask not found");
         }
     }
 
     @Override
     public void removeAllTasks() {
-        if (!tasks.isEmpty()) {
-            List<Integer> removeListTasks = new ArrayList<>(tasks.keySet());
-            for (Integer removeListTask : removeListTasks) {
-                removeTaskById(removeListTask);
-            }
-        }
-        tasks.clear();
+        removeTasksWhere(task -> true);
+        statusIndex.clear(TaskType.TASK);
+        removeArchivedWhere(TaskType.TASK, task -> true);
     }
 
     @Override
     public void removeAllEpics() {
-        if (!epics.isEmpty()) {
-            List<Integer> removeListEpics = new ArrayList<>(epics.keySet());
-            for (Integer remove : removeListEpics) {
-                removeEpicById(remove);
-            }
-        }
+        removeEpicsWhere(epic -> true);
+        removeArchivedWhere(TaskType.EPIC, epic -> true);
         subtasks.clear();
         epics.clear();
+        epicAggregates.clear();
+        statusIndex.clear(TaskType.SUBTASK);
+        statusIndex.clear(TaskType.EPIC);
+        modified(TaskSnapshot.EPICS | TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
     }
 
     @Override
     public void removeAllSubtasks() {
-        if (!subtasks.isEmpty()) {
-            List<Integer> removeListSubtasks = new ArrayList<>(subtasks.keySet());
-            for (Integer remove : removeListSubtasks) {
-                removeSubtaskById(remove);
+        removeSubtasksWhere(subtask -> true);
+        statusIndex.clear(TaskType.SUBTASK);
+        removeArchivedWhere(TaskType.SUBTASK, subtask -> true);
+    }
+
+    // the counts include the archived items that matched
+    @Override
+    public int removeTasksIf(Predicate<? super Task> filter) {
+        return removeTasksWhere(filter) + removeArchivedWhere(TaskType.TASK, filter);
+    }
+
+    @Override
+    public int removeEpicsIf(Predicate<? super Epic> filter) {
+        return removeEpicsWhere(filter) + removeArchivedWhere(TaskType.EPIC, filter);
+    }
+
+    @Override
+    public int removeSubtasksIf(Predicate<? super Subtask> filter) {
+        return removeSubtasksWhere(filter) + removeArchivedWhere(TaskType.SUBTASK, filter);
+    }
+
+    private int removeTasksWhere(Predicate<? super Task> filter) {
+        List<Task> removed = select(tasks.values(), filter);
+        for (Task task : removed) {
+            dropTask(task);
+        }
+        modified(TaskSnapshot.TASKS | TaskSnapshot.PRIORITIZED);
+        return removed.size();
+    }
+
+    private int removeEpicsWhere(Predicate<? super Epic> filter) {
+        List<Epic> removed = select(epics.values(), filter);
+        for (Epic epic : removed) {
+            dropEpic(epic);
+        }
+        modified(TaskSnapshot.EPICS | TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
+        return removed.size();
+    }
+
+    // subtasks are dropped first, then each affected epic is trimmed and recomputed once
+    private int removeSubtasksWhere(Predicate<? super Subtask> filter) {
+        List<Subtask> removed = select(subtasks.values(), filter);
+        Map<Integer, Set<Integer>> removedByEpic = new HashMap<>();
+        for (Subtask subtask : removed) {
+            dropSubtask(subtask);
+            removedByEpic.computeIfAbsent(subtask.getEpicId(), epicId -> new HashSet<>()).add(subtask.getId());
+        }
+        for (Map.Entry<Integer, Set<Integer>> entry : removedByEpic.entrySet()) {
+            Epic epic = epics.get(entry.getKey());
+            if (epic == null) {
+                continue;
             }
+            Set<Integer> ids = entry.getValue();
+            EpicAggregate aggregate = aggregateOf(epic);
+            if (ids.size() >= epic.getSubtaskIds().size()) {
+                epic.getSubtaskIds().clear();
+                aggregate.clear();
+            } else {
+                epic.getSubtaskIds().removeIf(ids::contains);
+                for (int id : ids) {
+                    aggregate.remove(id);
+                }
+            }
+            updateStatusEpic(epic);
+            findStartTimeAndDurationOfEpic(epic);
+        }
+        modified(TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
+        return removed.size();
+    }
+
+    private static <T extends Task> List<T> select(Collection<T> values, Predicate<? super T> filter) {
+        List<T> selected = new ArrayList<>();
+        for (T task : values) {
+            if (filter.test(task)) {
+                selected.add(task);
+            }
+        }
+        return selected;
+    }
+
+    private void dropTask(Task task) {
+        evictTask(task);
+        historyManager.remove(task.getId());
+    }
+
+    private void dropEpic(Epic epic) {
+        evictEpic(epic);
+        for (int subtaskId : epic.getSubtaskIds()) {
+            historyManager.remove(subtaskId);
+        }
+        historyManager.remove(epic.getId());
+    }
+
+    private void dropSubtask(Subtask subtask) {
+        evictSubtask(subtask);
+        historyManager.remove(subtask.getId());
+    }
+
+    // the evict methods take an item out of the hot structures but leave the history alone
+    private void evictTask(Task task) {
+        tasks.remove(task.getId());
+        removePrioritized(task);
+        unindex(TaskType.TASK, task.getId());
+    }
+
+    private void evictEpic(Epic epic) {
+        for (int subtaskId : epic.getSubtaskIds()) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                evictSubtask(subtask);
+            }
+        }
+        epics.remove(epic.getId());
+        epicAggregates.remove(epic.getId());
+        unindex(TaskType.EPIC, epic.getId());
+    }
+
+    private void evictSubtask(Subtask subtask) {
+        subtasks.remove(subtask.getId());
+        removePrioritized(subtask);
+        unindex(TaskType.SUBTASK, subtask.getId());
+    }
+
+    @Override
+    public void enableArchive(Path directory, Duration age) {
+        enableArchive(directory, age, Clock.systemDefaultZone());
+    }
+
+    // Archived ids stay reserved, so the id counter moves past the highest one on disk. Enabled before
+    // loading, the archive also resolves archived ids in the saved history. From then on a write starts
+    // with an archiving pass once per ARCHIVE_SWEEP.
+    public void enableArchive(Path directory, Duration age, Clock clock) {
+        TaskArchive opened;
+        try {
+            opened = new TaskArchive(directory);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not open archive " + directory, e);
+        }
+        archiveAge = age;
+        this.clock = clock;
+        nextSweep.set(clock.millis() + ARCHIVE_SWEEP.toMillis());
+        archive = opened;
+        id = Math.max(id, archive.getMaxId());
+        for (Task task : tasks.values()) {
+            trackDone(task);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            trackDone(subtask);
+        }
+    }
+
+    // DONE tasks, and DONE epics together with their subtasks, that closed more than the archive age ago
+    // are written to one archive segment and evicted
+    @Override
+    public int archiveDone() {
+        if (archive == null) {
+            return 0;
+        }
+        long cutoff = IntervalTree.key(LocalDateTime.now(clock).minus(archiveAge));
+        List<Task> coldTasks = select(tasks.values(), task -> isCold(task, cutoff));
+        List<Epic> coldEpics = select(epics.values(), epic -> isColdEpic(epic, cutoff));
+        List<Task> batch = new ArrayList<>(coldTasks);
+        for (Epic epic : coldEpics) {
+            batch.add(epic);
+            batch.addAll(getAllSubtasksByEpicId(epic.getId()));
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            archive.write(batch);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not write archive segment", e);
+        }
+        for (Task task : coldTasks) {
+            evictTask(task);
+        }
+        for (Epic epic : coldEpics) {
+            evictEpic(epic);
+        }
+        modified(TaskSnapshot.ALL);
+        return batch.size();
+    }
+
+    // Runs archiveDone() at the start of a write once the sweep interval has passed. Of the writers that
+    // find it due, only the one that moves nextSweep on runs the pass.
+    protected void archiveIfDue() {
+        if (archive == null) {
+            return;
+        }
+        long now = clock.millis();
+        long due = nextSweep.get();
+        if (now >= due && nextSweep.compareAndSet(due, now + ARCHIVE_SWEEP.toMillis())) {
+            archiveDone();
+        }
+    }
+
+    // An update of an archived item brings it back first, together with its epic and the epic's other
+    // subtasks; a later pass archives them again if they are still cold. The items are live and recorded
+    // before they leave the archive, so a crash in between leaves a copy in both places, not in neither.
+    private void unarchive(Integer id, TaskType type) {
+        if (id == null || archive == null || !archive.contains(id)
+                || tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id)) {
+            return;
+        }
+        Task item = archived(id, type);
+        if (item == null) {
+            return;
+        }
+        List<Task> group = new ArrayList<>();
+        if (type == TaskType.TASK) {
+            group.add(item);
+        } else {
+            Epic epic = type == TaskType.EPIC ? (Epic) item : archived(((Subtask) item).getEpicId(), TaskType.EPIC);
+            if (epic == null) {
+                return;
+            }
+            group.add(epic);
+            for (int subtaskId : epic.getSubtaskIds()) {
+                Subtask subtask = archived(subtaskId, TaskType.SUBTASK);
+                if (subtask != null) {
+                    group.add(subtask);
+                }
+            }
+            epic.getSubtaskIds().clear();
+        }
+        restoreAll(group);
+        for (Task task : group) {
+            trackDone(task);
+        }
+        unarchived(group);
+        try {
+            archive.remove(ids(group));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not update archive", e);
+        }
+    }
+
+    // called with unarchived items once they are live again and before they leave the archive
+    protected void unarchived(List<Task> items) {
+    }
+
+    // An archived epic is removed with its subtasks, and an archived subtask is dropped from its archived
+    // epic. Returns false when the id is not archived as that type.
+    private boolean removeArchived(int id, TaskType type) {
+        Task item = archived(id, type);
+        if (item == null) {
+            return false;
+        }
+        dropArchived(type, List.of(item));
+        return true;
+    }
+
+    // removeArchived for every archived item of the type that passes the filter; returns how many matched
+    @SuppressWarnings("unchecked")
+    protected <T extends Task> int removeArchivedWhere(TaskType type, Predicate<? super T> filter) {
+        if (archive == null) {
+            return 0;
+        }
+        List<Task> matched;
+        try {
+            matched = archive.find(task -> task.getType() == type && filter.test((T) task));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read archive", e);
+        }
+        if (!matched.isEmpty()) {
+            dropArchived(type, matched);
+        }
+        return matched.size();
+    }
+
+    private void dropArchived(TaskType type, List<Task> items) {
+        List<Task> removed = new ArrayList<>(items);
+        try {
+            if (type == TaskType.EPIC) {
+                for (Task item : items) {
+                    for (int subtaskId : ((Epic) item).getSubtaskIds()) {
+                        Subtask subtask = archived(subtaskId, TaskType.SUBTASK);
+                        if (subtask != null) {
+                            removed.add(subtask);
+                        }
+                    }
+                }
+            } else if (type == TaskType.SUBTASK) {
+                Map<Integer, Epic> trimmed = new LinkedHashMap<>();
+                for (Task item : items) {
+                    int epicId = ((Subtask) item).getEpicId();
+                    Epic epic = trimmed.containsKey(epicId) ? trimmed.get(epicId) : archived(epicId, TaskType.EPIC);
+                    if (epic != null) {
+                        epic.getSubtaskIds().remove(item.getId());
+                        trimmed.put(epicId, epic);
+                    }
+                }
+                if (!trimmed.isEmpty()) {
+                    archive.write(trimmed.values());
+                }
+            }
+            archive.remove(ids(removed));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not update archive", e);
+        }
+        for (Task task : removed) {
+            historyManager.remove(task.getId());
+        }
+    }
+
+    private static List<Integer> ids(List<Task> items) {
+        List<Integer> ids = new ArrayList<>(items.size());
+        for (Task task : items) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Task> getArchived(Predicate<? super Task> filter) {
+        if (archive == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return archive.find(filter);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read archive", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T extends Task> T archived(int id, TaskType type) {
+        if (archive == null || !archive.contains(id)) {
+            return null;
+        }
+        try {
+            Task task = archive.get(id);
+            return task != null && task.getType() == type ? (T) task : null;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Could not read archive", e);
+        }
+    }
+
+    private boolean isCold(Task task, long cutoff) {
+        if (task.getStatus() != Status.DONE) {
+            return false;
+        }
+        Long closed = task.hasStartTime() ? task.getEndKey() : doneSince.get(task.getId());
+        return closed != null && closed <= cutoff;
+    }
+
+    private boolean isColdEpic(Epic epic, long cutoff) {
+        if (epic.getStatus() != Status.DONE || epic.getSubtaskIds().isEmpty()) {
+            return false;
+        }
+        for (int subtaskId : epic.getSubtaskIds()) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask == null || !isCold(subtask, cutoff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void trackDone(Task task) {
+        if (archive == null) {
+            return;
+        }
+        if (task.getStatus() == Status.DONE && !task.hasStartTime()) {
+            doneSince.putIfAbsent(task.getId(), IntervalTree.key(LocalDateTime.now(clock)));
+        } else {
+            doneSince.remove(task.getId());
         }
-        subtasks.clear();
     }
 
     @Override
     public Task getTaskById(int id) {
-        historyManager.add(tasks.get(id));
-        return tasks.get(id);
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = archived(id, TaskType.TASK);
+        }
+        historyManager.add(task);
+        return task;
     }
 
     @Override
     public Epic getEpicById(int id) {
-        historyManager.add(epics.get(id));
-        return epics.get(id);
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            epic = archived(id, TaskType.EPIC);
+        }
+        historyManager.add(epic);
+        return epic;
     }
 
     @Override
     public Subtask getSubtaskById(int id) {
-        historyManager.add(subtasks.get(id));
-        return subtasks.get(id);
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            subtask = archived(id, TaskType.SUBTASK);
+        }
+        historyManager.add(subtask);
+        return subtask;
     }
 
     @Override
     public List<Task> getAllTasks() {
-        if (tasks.size() == 0) {
-            return Collections.emptyList();
-        }
-        return new ArrayList<>(tasks.values());
+        return getSnapshot().getTasks();
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        if (epics.size() == 0) {
-            return Collections.emptyList();
-        }
-        return new ArrayList<>(epics.values());
+        return getSnapshot().getEpics();
     }
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        if (subtasks.size() == 0) {
-            return Collections.emptyList();
+        return getSnapshot().getSubtasks();
+    }
+
+    @Override
+    public TaskSnapshot getSnapshot() {
+        TaskSnapshot current = snapshot;
+        if (current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            current = snapshot;
+            long latest = version.get();
+            if (current.getVersion() == latest) {
+                return current;
+            }
+            // writers set their flags before bumping the version, and the version is read before the flags,
+            // so a write that lands in between is copied again next time
+            current = buildSnapshot(current, latest, changed.getAndSet(0));
+            snapshot = current;
+            return current;
         }
-        return new ArrayList<>(subtasks.values());
+    }
+
+    // the snapshot after previous, copying only the collections flagged in changed
+    protected TaskSnapshot buildSnapshot(TaskSnapshot previous, long version, int changed) {
+        return previous.update(version, changed, tasks.values(), epics.values(), subtasks.values(), prioritizedTasks);
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    protected void modified() {
+        modified(TaskSnapshot.ALL);
+    }
+
+    // changed names the collections whose membership or order the write changed, as TaskSnapshot flags
+    protected void modified(int changed) {
+        this.changed.getAndAccumulate(changed, (current, flags) -> current | flags);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return lookup(tasks, TaskType.TASK, status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return lookup(epics, TaskType.EPIC, status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return lookup(subtasks, TaskType.SUBTASK, status);
+    }
+
+    private <T extends Task> List<T> lookup(Map<Integer, T> storage, TaskType type, Status status) {
+        List<T> result = new ArrayList<>(statusIndex.count(type, status));
+        for (Integer id : statusIndex.get(type, status)) {
+            T task = storage.get(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (int id : searchIds(query, limit)) {
+            Task task = tasks.containsKey(id) ? tasks.get(id) : epics.containsKey(id) ? epics.get(id) : subtasks.get(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    protected List<Integer> searchIds(String query, int limit) {
+        return textIndex.search(query, limit);
+    }
+
+    protected void index(Task task) {
+        indexStatus(task);
+        indexText(task);
+        trackDone(task);
+    }
+
+    protected void unindex(TaskType type, int id) {
+        statusIndex.remove(type, id);
+        unindexText(id);
+        doneSince.remove(id);
+    }
+
+    protected void indexStatus(Task task) {
+        statusIndex.put(task.getType(), task.getId(), task.getStatus());
+    }
+
+    protected void indexText(Task task) {
+        textIndex.put(task.getId(), task.getName(), task.getDescription());
+    }
+
+    protected void unindexText(int id) {
+        textIndex.remove(id);
     }
 
     @Override
@@ -220,11 +869,13 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void updateTask(Task task) {
+        archiveIfDue();
+        unarchive(task.getId(), TaskType.TASK);
         if (tasks.containsKey(task.getId())) {
-            validation(task);
-            prioritizedTasks.remove(tasks.get(task.getId()));
+            schedule(tasks.get(task.getId()), task);
             tasks.put(task.getId(), task);
-            prioritizedTasks.add(task);
+            index(task);
+            modified(TaskSnapshot.TASKS | TaskSnapshot.PRIORITIZED);
         }
     }
 
@@ -237,23 +888,30 @@ public class InMemoryTaskManager implements TaskManager {
         if (epicId == null) {
             throw new IllegalArgumentException("Epic ID cannot be null");
         }
+        archiveIfDue();
+        unarchive(epic.getId(), TaskType.EPIC);
         if (epics.containsKey(epic.getId())) {
             Epic oldEpic = epics.get(epic.getId());
             oldEpic.setDescription(epic.getDescription());
             oldEpic.setName(epic.getName());
+            indexText(oldEpic);
+            modified(TaskSnapshot.EPICS);
         }
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
+        archiveIfDue();
+        unarchive(subtask.getId(), TaskType.SUBTASK);
         if (subtasks.containsKey(subtask.getId())) {
-            validation(subtask);
-            prioritizedTasks.remove(subtasks.get(subtask.getId()));
+            schedule(subtasks.get(subtask.getId()), subtask);
             subtasks.put(subtask.getId(), subtask);
+            index(subtask);
             Epic epic = epics.get(subtask.getEpicId());
+            aggregateOf(epic).add(subtask);
             updateStatusEpic(epic);
             findStartTimeAndDurationOfEpic(epic);
-            prioritizedTasks.add(subtask);
+            modified(TaskSnapshot.SUBTASKS | TaskSnapshot.PRIORITIZED);
         }
     }
 
@@ -262,32 +920,129 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getRecentHistory(int offset, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        if (offset < 0 || limit <= 0) {
+            return page;
+        }
+        int[] skipped = {0};
+        historyManager.visitRecent((int) Math.min(Integer.MAX_VALUE, (long) offset + limit), task -> {
+            if (skipped[0] < offset) {
+                skipped[0]++;
+            } else {
+                page.add(task);
+            }
+            return true;
+        });
+        return page;
+    }
+
     public void updateStatusEpic(Epic epic) {
         if (epics.containsKey(epic.getId())) {
-            if (epic.getSubtaskIds().size() == 0) {
-                epic.setStatus(Status.NEW);
-            } else {
-                int countDone = 0;
-                int countNew = 0;
+            epic.setStatus(aggregateOf(epic).getStatus());
+            indexStatus(epic);
+        }
+    }
 
-                for (int i = 0; i < epic.getSubtaskIds().size(); i++) {
-                    if (subtasks.get(epic.getSubtaskIds().get(i)).getStatus() == Status.DONE) {
-                        countDone++;
-                    }
-                    if (subtasks.get(epic.getSubtaskIds().get(i)).getStatus() == Status.NEW) {
-                        countNew++;
-                    }
+    // Bulk load of items that already carry their ids, as read from a file. The maps are filled in one pass,
+    // the schedule is built from a single sort, and each epic's status and times are computed once at the
+    // end instead of once per subtask. Subtasks whose epic is missing are skipped.
+    protected void restoreAll(List<? extends Task> items) {
+        List<Task> prioritized = new ArrayList<>(items.size());
+        for (Task task : items) {
+            if (task.getType() == TaskType.EPIC) {
+                adoptSubtaskIds((Epic) task);
+                epics.put(task.getId(), (Epic) task);
+                epicAggregates.remove(task.getId());
+                id = Math.max(id, task.getId());
+                index(task);
+            }
+        }
+        Map<Integer, Epic> affectedEpics = new LinkedHashMap<>();
+        for (Task task : items) {
+            if (task.getType() == TaskType.EPIC) {
+                continue;
+            }
+            if (task.getType() == TaskType.SUBTASK) {
+                Epic epic = epics.get(((Subtask) task).getEpicId());
+                if (epic == null) {
+                    System.out.println("Epic not found");
+                    continue;
                 }
+                subtasks.put(task.getId(), (Subtask) task);
+                epic.addSubtaskIds(task.getId());
+                affectedEpics.put(epic.getId(), epic);
+            } else {
+                tasks.put(task.getId(), task);
+            }
+            id = Math.max(id, task.getId());
+            index(task);
+            prioritized.add(task);
+        }
+        prioritized.sort(PRIORITY_ORDER);
+        addAllPrioritized(prioritized);
+        for (Epic epic : affectedEpics.values()) {
+            epicAggregates.remove(epic.getId());
+            updateStatusEpic(epic);
+        }
+        for (Task task : items) {
+            if (task.getType() == TaskType.EPIC) {
+                findStartTimeAndDurationOfEpic((Epic) task);
+            }
+        }
+        modified(TaskSnapshot.ALL);
+    }
 
-                if (countDone == epic.getSubtaskIds().size()) {
-                    epic.setStatus(Status.DONE);
-                } else if (countNew == epic.getSubtaskIds().size()) {
-                    epic.setStatus(Status.NEW);
-                } else {
-                    epic.setStatus(Status.IN_PROGRESS);
+    // takes items in priority order into an empty schedule: the interval tree is built bottom-up from
+    // the sorted arrays instead of searched item by item
+    protected void addAllPrioritized(List<Task> sorted) {
+        if (!prioritizedTasks.isEmpty()) {
+            for (Task task : sorted) {
+                addPrioritized(task);
+            }
+            return;
+        }
+        for (Task task : sorted) {
+            prioritizedTasks.add(task);
+        }
+        int[] ids = new int[sorted.size()];
+        long[] starts = new long[sorted.size()];
+        long[] ends = new long[sorted.size()];
+        int timed = 0;
+        for (Task task : sorted) {
+            if (task.hasStartTime()) {
+                ids[timed] = task.getId();
+                starts[timed] = task.getStartKey();
+                ends[timed] = task.getEndKey();
+                bookings.add(task.getStartKey(), task.getEndKey());
+                timed++;
+            }
+        }
+        scheduleIndex.addAllSorted(ids, starts, ends, timed);
+    }
+
+    protected void linkSubtask(Epic epic, Subtask subtask) {
+        epic.addSubtaskIds(subtask.getId());
+        aggregateOf(epic).add(subtask);
+        modified(TaskSnapshot.SUBTASKS);
+    }
+
+    protected EpicAggregate aggregateOf(Epic epic) {
+        EpicAggregate aggregate = epicAggregates.get(epic.getId());
+        if (aggregate == null) {
+            aggregate = new EpicAggregate();
+            for (int subtaskId : epic.getSubtaskIds()) {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    aggregate.add(subtask);
                 }
             }
+            if (epics.containsKey(epic.getId())) {
+                epicAggregates.put(epic.getId(), aggregate);
+            }
         }
+        return aggregate;
     }
 
     public HistoryManager getHistoryManager() {
@@ -296,31 +1051,156 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return getSnapshot().getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, int limit) {
+        Task probe = new Task(null, null, null, from, 0);
+        probe.setId(Integer.MIN_VALUE);
+        return page(prioritizedIterator(probe, true), limit);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(int afterId, int limit) {
+        Task cursor = tasks.containsKey(afterId) ? tasks.get(afterId) : subtasks.get(afterId);
+        if (cursor == null || !isPrioritized(cursor)) {
+            return Collections.emptyList();
+        }
+        return page(prioritizedIterator(cursor, false), limit);
+    }
+
+    // tasks in priority order starting at from, or at the beginning when from is null
+    protected Iterator<Task> prioritizedIterator(Task from, boolean inclusive) {
+        return (from == null ? prioritizedTasks : prioritizedTasks.tailSet(from, inclusive)).iterator();
+    }
+
+    protected boolean isPrioritized(Task task) {
+        return prioritizedTasks.contains(task);
+    }
+
+    private static List<Task> page(Iterator<Task> iterator, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime from, int duration) {
+        long start = scheduleIndex.findFreeStart(IntervalTree.key(from), Duration.ofMinutes(duration).toNanos());
+        return IntervalTree.time(start);
+    }
+
+    @Override
+    public Task addTaskAutoPlaced(Task task) throws IOException, InterruptedException {
+        place(task);
+        return addTask(task);
+    }
+
+    @Override
+    public Subtask addSubtaskAutoPlaced(Subtask subtask) throws IOException, InterruptedException {
+        place(subtask);
+        return addSubtask(subtask);
+    }
+
+    // moves a timed task to the earliest free window at or after its requested start
+    protected void place(Task task) {
+        if (task.hasStartTime()) {
+            task.setStartTime(findFreeSlot(task.getStartTime(), task.getDuration()));
+        }
     }
 
     @Override
     public void setPrioritizedTasks(Task task) {
+        addPrioritized(task);
+        modified(TaskSnapshot.PRIORITIZED);
+    }
+
+    // validates the task against the schedule and replaces its previous version in one step
+    protected void schedule(Task previous, Task task) {
+        validation(task);
+        removePrioritized(previous);
+        addPrioritized(task);
+    }
+
+    protected void addPrioritized(Task task) {
         prioritizedTasks.add(task);
+        indexSchedule(task);
+    }
+
+    protected void removePrioritized(Task task) {
+        if (task != null) {
+            prioritizedTasks.remove(task);
+            unindexSchedule(task.getId());
+        }
+    }
+
+    protected void indexSchedule(Task task) {
+        if (task.hasStartTime()) {
+            unindexSchedule(task.getId());
+            scheduleIndex.add(task.getId(), task.getStartKey(), task.getEndKey());
+            bookings.add(task.getStartKey(), task.getEndKey());
+        }
+    }
+
+    // takes the interval out using the times it was indexed with, not the task's current fields
+    protected void unindexSchedule(int id) {
+        if (scheduleIndex.contains(id)) {
+            bookings.remove(scheduleIndex.start(id), scheduleIndex.end(id));
+            scheduleIndex.remove(id);
+        }
     }
 
     @Override
-    public void validation (Task task) {
-        for (Task existTask : prioritizedTasks) {
-            if (Objects.equals(task.getId(), existTask.getId())) {
-                continue;
-            }
-            if (existTask.getStartTime() == null || task.getStartTime() == null) {
-                break;
-            }
-            if(task.getEndTime().isBefore(existTask.getStartTime())
-                    || task.getEndTime().equals(existTask.getStartTime())
-                    || task.getStartTime().isAfter(existTask.getEndTime())
-                    || task.getStartTime().equals(existTask.getStartTime())){
-            } else {
-                throw new ValidationException(task + " error validation: " + existTask);
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        for (int id : findIntersecting(IntervalTree.key(from), IntervalTree.key(to))) {
+            Task task = tasks.containsKey(id) ? tasks.get(id) : subtasks.get(id);
+            if (task != null) {
+                result.add(task);
             }
+        }
+        return result;
+    }
+
+    // ids of timed tasks from the given start key and id onwards, in start order
+    protected PrimitiveIterator.OfInt scheduledIds(long start, int id, boolean inclusive) {
+        return scheduleIndex.ascending(start, id, inclusive);
+    }
+
+    protected List<Integer> findIntersecting(long from, long to) {
+        return scheduleIndex.findIntersecting(from, to);
+    }
 
+    @Override
+    public long getBookedMinutes(LocalDate from, LocalDate to) {
+        return bookings.sum(from.toEpochDay(), to.toEpochDay()) / 60;
+    }
+
+    @Override
+    public List<LocalDate> getOverbookedDays(LocalDate from, LocalDate to, int capacityMinutes) {
+        List<LocalDate> result = new ArrayList<>();
+        for (long day : bookings.daysAbove(from.toEpochDay(), to.toEpochDay(), capacityMinutes * 60L)) {
+            result.add(LocalDate.ofEpochDay(day));
+        }
+        return result;
+    }
+
+    @Override
+    public void validation (Task task) {
+        if (!task.hasStartTime()) {
+            return;
+        }
+        checkOverlap(task, task.getId() != null ? task.getId() : 0);
+    }
+
+    private void checkOverlap(Task task, int excludeId) {
+        Integer overlapId = scheduleIndex.findOverlap(task.getStartKey(), task.getEndKey(), excludeId);
+        if (overlapId != null) {
+            Task existTask = tasks.containsKey(overlapId) ? tasks.get(overlapId) : subtasks.get(overlapId);
+            throw new ValidationException(task + " error validation: " + existTask);
         }
     }
 
@@ -331,35 +1211,21 @@ public class InMemoryTaskManager implements TaskManager {
             historyManager.add(subtasks.get(id));
         } else if (tasks.containsKey(id)) {
             historyManager.add(tasks.get(id));
+        } else if (archive != null && archive.contains(id)) {
+            try {
+                historyManager.add(archive.get(id));
+            } catch (IOException e) {
+                throw new ManagerSaveException("Could not read archive", e);
+            }
         }
     }
 
     @Override
     public void findStartTimeAndDurationOfEpic(Epic epic) {
-        List<Integer> subTaskIds = epic.getSubtaskIds();
-
-        LocalDateTime endTime = null;
-        LocalDateTime startTime = null;
-        int duration = 0;
-
-        for(int id : subTaskIds){
-            Subtask subTask = subtasks.get(id);
-            if (subTask.getStartTime() != null) {
-                if (startTime == null || startTime.isAfter(subTask.getStartTime())) {
-                    startTime = subTask.getStartTime();
-                }
-            }
-            if (subTask.getEndTime() != null) {
-                if (endTime == null || endTime.isBefore(subTask.getEndTime())) {
-                    endTime = subTask.getEndTime();
-                }
-            }
-            duration += subTask.getDuration();
-        }
-        epic.setStartTime(startTime);
-        epic.setEndTime(endTime);
-        epic.setDuration(duration);
-
+        EpicAggregate aggregate = aggregateOf(epic);
+        epic.setStartTime(aggregate.getStartTime());
+        epic.setEndTime(aggregate.getEndTime());
+        epic.setDuration(aggregate.getDuration());
     }
 
     public boolean isValidSubtaskId(int subtaskId) {
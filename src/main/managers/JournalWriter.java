@@ -0,0 +1,241 @@
+package main.managers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for a TaskJournal. Callers queue formatted records and get back a sequence number;
+// one background thread drains whatever has queued up and writes it as a single group with one
+// flush and, when the policy asks for it, one force. A write error stops the thread and is rethrown
+// to the next caller. What a committed record survives depends on the policy:
+//   EVERY_OP  commit() returns once the record is on the device, so a crash loses nothing committed.
+//             Callers that commit while a force runs share the next one; a caller that is alone, such as
+//             a manager driven by one thread, still pays one force per commit.
+//   INTERVAL  commit() returns at once. The record reaches the OS with the next group and the device
+//             within one interval of that, so a process crash loses the records still queued and a
+//             machine crash at most the last interval of commits.
+//   ON_CLOSE  commit() returns at once and only barrier(), rotate() and close() force, so a machine
+//             crash loses everything committed since the last of them.
+// getDurable() tells how far the device has caught up.
+public class JournalWriter implements Closeable {
+    private static final Object BARRIER = new Object();
+
+    private final TaskJournal journal;
+    private final SyncPolicy policy;
+    private final long intervalNanos;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final Object lock = new Object();
+    private long submitted;
+    private long written;
+    private long durable;
+    private long groups;
+    private long forces;
+    private IOException failure;
+    private boolean closed;
+
+    public JournalWriter(TaskJournal journal, SyncPolicy policy, Duration interval) {
+        if (policy == SyncPolicy.INTERVAL && (interval == null || interval.isZero() || interval.isNegative())) {
+            throw new IllegalArgumentException("Sync interval must be positive: " + interval);
+        }
+        this.journal = journal;
+        this.policy = policy;
+        this.intervalNanos = interval == null ? 0 : interval.toNanos();
+        thread = new Thread(this::run, "task-journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public long submit(String record) throws IOException {
+        synchronized (lock) {
+            check();
+            queue.add(record);
+            return ++submitted;
+        }
+    }
+
+    // returns once the record with this sequence number is as durable as the policy promises
+    public void commit(long sequence) throws IOException {
+        if (policy == SyncPolicy.EVERY_OP) {
+            awaitDurable(sequence);
+        } else {
+            synchronized (lock) {
+                check();
+            }
+        }
+    }
+
+    // everything submitted before the call is on the device when it returns, whatever the policy
+    public void barrier() throws IOException {
+        long sequence;
+        synchronized (lock) {
+            check();
+            sequence = submitted;
+            queue.add(BARRIER);
+        }
+        awaitDurable(sequence);
+    }
+
+    // waits for the queue to drain, then seals the log; rotate() forces it, so all of it is durable
+    public long rotate() throws IOException {
+        synchronized (lock) {
+            check();
+            while (written < submitted) {
+                await();
+            }
+            long segment = journal.rotate();
+            durable = written;
+            return segment;
+        }
+    }
+
+    // the highest sequence number known to be on the device
+    public long getDurable() {
+        synchronized (lock) {
+            return durable;
+        }
+    }
+
+    public long getGroups() {
+        synchronized (lock) {
+            return groups;
+        }
+    }
+
+    public long getForces() {
+        synchronized (lock) {
+            return forces;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(BARRIER);
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Journal write failed", failure);
+            }
+        }
+    }
+
+    private void run() {
+        List<String> group = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        while (true) {
+            boolean forceRequested = false;
+            boolean stop;
+            try {
+                Object first = policy == SyncPolicy.INTERVAL
+                        ? queue.poll(intervalNanos, TimeUnit.NANOSECONDS) : queue.take();
+                if (first != null) {
+                    List<Object> drained = new ArrayList<>();
+                    drained.add(first);
+                    queue.drainTo(drained);
+                    for (Object record : drained) {
+                        if (record == BARRIER) {
+                            forceRequested = true;
+                        } else {
+                            group.add((String) record);
+                        }
+                    }
+                }
+                for (String record : group) {
+                    journal.append(record);
+                }
+                journal.flush();
+                long now = System.nanoTime();
+                long target;
+                synchronized (lock) {
+                    written += group.size();
+                    if (!group.isEmpty()) {
+                        groups++;
+                    }
+                    target = written;
+                    stop = closed && queue.isEmpty();
+                    lock.notifyAll();
+                }
+                group.clear();
+                boolean force = target > durable() && (forceRequested || stop || policy == SyncPolicy.EVERY_OP
+                        || (policy == SyncPolicy.INTERVAL && now - lastForce >= intervalNanos));
+                if (force) {
+                    journal.force();
+                    lastForce = now;
+                }
+                synchronized (lock) {
+                    if (force) {
+                        forces++;
+                    }
+                    if (force || forceRequested) {
+                        durable = Math.max(durable, target);
+                    }
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private long durable() {
+        synchronized (lock) {
+            return durable;
+        }
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        synchronized (lock) {
+            while (durable < sequence) {
+                check();
+                await();
+            }
+        }
+    }
+
+    private void await() throws IOException {
+        if (!thread.isAlive() && failure == null) {
+            throw new IOException("Journal writer is not running");
+        }
+        try {
+            lock.wait(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+    }
+
+    private void check() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal write failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal writer is closed");
+        }
+    }
+}
@@ -6,16 +6,42 @@ import main.http.HTTPTaskManager;
 
 import main.http.KVServer;
 
+import java.time.Duration;
+
 
 public class Managers {
     public static TaskManager getInMemoryTaskManager(HistoryManager historyManager) {
         return new InMemoryTaskManager(historyManager);
     }
 
+    public static TaskManager getCompactTaskManager(HistoryManager historyManager) {
+        return new InMemoryTaskManager(historyManager, StorageMode.COMPACT);
+    }
+
+    public static TaskManager getConcurrentTaskManager(HistoryManager historyManager) {
+        return new ConcurrentTaskManager(historyManager);
+    }
+
+    public static TaskManager getOffHeapTaskManager(HistoryManager historyManager) {
+        return new OffHeapTaskManager(historyManager);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static HistoryManager getArrayHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
+    public static SessionHistoryManager getSessionHistory(int capacity, Duration idleTimeout) {
+        return new SessionHistoryManager(capacity, idleTimeout);
+    }
+
     public static HTTPTaskManager getDefault(HistoryManager historyManager) {
         return new HTTPTaskManager(historyManager, "http://localhost:" + KVServer.PORT, true);
     }
@@ -0,0 +1,144 @@
+package main.managers;
+
+import main.exceptions.ValidationException;
+import main.tasks.Task;
+import main.util.OffHeapTaskStore;
+import main.util.TaskType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+// Tasks and subtasks live in an off-heap column store and are materialized on every read, so callers
+// always get fresh copies. Epics, the schedule, status and text indexes and the epic aggregates stay on
+// the heap, so status queries and epic updates do not scan or rebuild from the columns.
+public class OffHeapTaskManager extends InMemoryTaskManager {
+
+    private final OffHeapTaskStore store;
+    // ids without a start time; they follow the timed ones in the priority order, by id
+    private final BitSet unscheduled = new BitSet();
+
+    public OffHeapTaskManager(HistoryManager historyManager) {
+        this(historyManager, new OffHeapTaskStore());
+    }
+
+    private OffHeapTaskManager(HistoryManager historyManager, OffHeapTaskStore store) {
+        super(historyManager, store.view(TaskType.TASK), store.view(TaskType.SUBTASK));
+        this.store = store;
+    }
+
+    public OffHeapTaskStore getStore() {
+        return store;
+    }
+
+    // ids index the store's columns, so the counter fails before it passes the store's limit
+    @Override
+    public int generateId() {
+        checkIds(1);
+        return super.generateId();
+    }
+
+    @Override
+    protected int generateIds(int count) {
+        checkIds(count);
+        return super.generateIds(count);
+    }
+
+    private void checkIds(int count) {
+        if ((long) getId() + count > OffHeapTaskStore.MAX_ID) {
+            throw new ValidationException("No task IDs left in the off-heap store");
+        }
+    }
+
+    @Override
+    protected void addPrioritized(Task task) {
+        if (task.hasStartTime()) {
+            unscheduled.clear(task.getId());
+            indexSchedule(task);
+        } else {
+            unindexSchedule(task.getId());
+            unscheduled.set(task.getId());
+        }
+    }
+
+    // the schedule lives in the index and the bit set only
+    @Override
+    protected void addAllPrioritized(List<Task> sorted) {
+        for (Task task : sorted) {
+            addPrioritized(task);
+        }
+    }
+
+    @Override
+    protected void removePrioritized(Task task) {
+        if (task != null) {
+            unscheduled.clear(task.getId());
+            unindexSchedule(task.getId());
+        }
+    }
+
+    @Override
+    protected boolean isPrioritized(Task task) {
+        return store.type(task.getId()) != null;
+    }
+
+    // timed ids come from the schedule index in (start, id) order, then the untimed ones from the bit set
+    @Override
+    protected Iterator<Task> prioritizedIterator(Task from, boolean inclusive) {
+        long start = from == null ? Long.MIN_VALUE : from.getStartKey();
+        long id = from == null ? Integer.MIN_VALUE : from.getId();
+        PrimitiveIterator.OfInt timed = start == Task.NO_TIME
+                ? IntStream.empty().iterator() : scheduledIds(start, (int) id, inclusive);
+        int firstUntimed = start != Task.NO_TIME ? 0 : (int) Math.max(0, inclusive ? id : id + 1);
+        return new Iterator<>() {
+            private int untimed = firstUntimed;
+            private Task next = advance();
+
+            private Task advance() {
+                while (timed.hasNext()) {
+                    Task task = store.get(timed.nextInt());
+                    if (task != null) {
+                        return task;
+                    }
+                }
+                for (int i = unscheduled.nextSetBit(untimed); i >= 0; i = unscheduled.nextSetBit(i + 1)) {
+                    untimed = i + 1;
+                    Task task = store.get(i);
+                    if (task != null) {
+                        return task;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    @Override
+    protected TaskSnapshot buildSnapshot(TaskSnapshot previous, long version, int changed) {
+        List<Task> prioritized = previous.getPrioritizedTasks();
+        if ((changed & TaskSnapshot.PRIORITIZED) != 0) {
+            prioritized = new ArrayList<>();
+            prioritizedIterator(null, true).forEachRemaining(prioritized::add);
+        }
+        return previous.update(version, changed, tasks.values(), epics.values(), subtasks.values(), prioritized);
+    }
+}
@@ -0,0 +1,7 @@
+package main.managers;
+
+public enum PersistenceMode {
+    SNAPSHOT,
+    BINARY,
+    JOURNAL;
+}
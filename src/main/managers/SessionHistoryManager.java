@@ -0,0 +1,121 @@
+package main.managers;
+
+import main.tasks.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+// One bounded history per client session. The server binds the caller's token to the handling
+// thread, and add/getHistory then go to that session only, so clients contend on their own lock.
+// Calls with no bound token share an anonymous session. Sessions idle for longer than the timeout
+// are dropped by a sweep that runs from bind() at most twice per timeout.
+public class SessionHistoryManager implements HistoryManager {
+    private static final String ANONYMOUS = "";
+
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ThreadLocal<Session> current = new ThreadLocal<>();
+    private final int capacity;
+    private final long idleNanos;
+    private volatile long lastSweep = System.nanoTime();
+
+    public SessionHistoryManager(int capacity, Duration idleTimeout) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.idleNanos = idleTimeout.toNanos();
+    }
+
+    public void bind(String token) {
+        long now = System.nanoTime();
+        if (now - lastSweep > idleNanos / 2) {
+            lastSweep = now;
+            evictIdle(now);
+        }
+        current.set(touch(token == null ? ANONYMOUS : token, now));
+    }
+
+    public void unbind() {
+        current.remove();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void add(Task task) {
+        Session session = session();
+        synchronized (session) {
+            session.history.add(task);
+        }
+    }
+
+    // a deleted task leaves every session
+    @Override
+    public void remove(int id) {
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                session.history.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        Session session = session();
+        synchronized (session) {
+            return session.history.getHistory();
+        }
+    }
+
+    @Override
+    public int size() {
+        Session session = session();
+        synchronized (session) {
+            return session.history.size();
+        }
+    }
+
+    @Override
+    public void visitRecent(int limit, Predicate<? super Task> visitor) {
+        Session session = session();
+        synchronized (session) {
+            session.history.visitRecent(limit, visitor);
+        }
+    }
+
+    private Session session() {
+        Session session = current.get();
+        return session != null ? session : touch(ANONYMOUS, System.nanoTime());
+    }
+
+    // the access time is set inside the map's compute, so a sweep sees either the old session idle and
+    // gone before this call, or the session this call returns as fresh
+    private Session touch(String key, long now) {
+        return sessions.compute(key, (ignored, session) -> {
+            Session touched = session != null ? session : new Session(capacity);
+            touched.lastAccess = now;
+            return touched;
+        });
+    }
+
+    // each removal rechecks the access time under the same per-key lock that touch() takes
+    private void evictIdle(long now) {
+        for (String key : sessions.keySet()) {
+            sessions.computeIfPresent(key, (ignored, session) -> now - session.lastAccess > idleNanos ? null : session);
+        }
+    }
+
+    private static class Session {
+        private final HistoryManager history;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Session(int capacity) {
+            this.history = new ArrayHistoryManager(capacity);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package main.managers;
+
+public enum StorageMode {
+    HASH_MAP,
+    COMPACT,
+    CONCURRENT;
+}
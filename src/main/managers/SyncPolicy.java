@@ -0,0 +1,8 @@
+package main.managers;
+
+// When a group commit forces the journal to the device
+public enum SyncPolicy {
+    EVERY_OP,
+    INTERVAL,
+    ON_CLOSE;
+}
@@ -0,0 +1,39 @@
+package main.managers;
+
+import main.tasks.Task;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+public class SynchronizedHistoryManager implements HistoryManager {
+    private final HistoryManager historyManager;
+
+    public SynchronizedHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        historyManager.add(task);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        historyManager.remove(id);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized int size() {
+        return historyManager.size();
+    }
+
+    @Override
+    public synchronized void visitRecent(int limit, Predicate<? super Task> visitor) {
+        historyManager.visitRecent(limit, visitor);
+    }
+}
@@ -0,0 +1,201 @@
+package main.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import main.adapters.LocalDateTimeAdapter;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import main.util.IntHashMap;
+import main.util.TaskType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Append-only cold storage. Each archiving pass writes one gzip segment of "id<TAB>type<TAB>json" lines;
+// only an id -> segment index stays in memory. A segment is parsed when one of its ids is read,
+// and the last parsed segment is kept for the lookups that usually follow. A later segment overrides
+// an earlier one, and a removal is a segment of "id<TAB>-" tombstones.
+public class TaskArchive {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".gz";
+    private static final String TOMBSTONE = "-";
+    private static final Gson gson = new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+
+    private final Path directory;
+    private final IntHashMap<Integer> segments = new IntHashMap<>();
+    private int nextSegment;
+    private int maxId;
+    private int cachedSegment = -1;
+    private Map<Integer, Task> cached = Collections.emptyMap();
+
+    public TaskArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Integer> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                existing.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(existing);
+        for (int segment : existing) {
+            try (BufferedReader reader = open(segment)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    int tab = line.indexOf('\t');
+                    int id = Integer.parseInt(line.substring(0, tab));
+                    if (TOMBSTONE.equals(line.substring(tab + 1))) {
+                        segments.remove(id);
+                        maxId = Math.max(maxId, id);
+                    } else {
+                        register(id, segment);
+                    }
+                }
+            }
+            nextSegment = segment + 1;
+        }
+    }
+
+    public synchronized void write(Collection<? extends Task> batch) throws IOException {
+        List<String> lines = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            lines.add(task.getId() + "\t" + task.getType() + "\t" + gson.toJson(task));
+        }
+        int segment = writeSegment(lines);
+        for (Task task : batch) {
+            register(task.getId(), segment);
+        }
+    }
+
+    // the ids stay reserved: getMaxId() still counts them
+    public synchronized void remove(Collection<Integer> ids) throws IOException {
+        List<String> lines = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            if (segments.containsKey(id)) {
+                lines.add(id + "\t" + TOMBSTONE);
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        writeSegment(lines);
+        for (int id : ids) {
+            segments.remove(id);
+        }
+    }
+
+    private int writeSegment(List<String> lines) throws IOException {
+        int segment = nextSegment;
+        Path target = path(segment);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        nextSegment++;
+        return segment;
+    }
+
+    public synchronized Task get(int id) throws IOException {
+        Integer segment = segments.get(id);
+        if (segment == null) {
+            return null;
+        }
+        if (segment != cachedSegment) {
+            cached = read(segment);
+            cachedSegment = segment;
+        }
+        return cached.get(id);
+    }
+
+    public synchronized boolean contains(int id) {
+        return segments.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return segments.size();
+    }
+
+    public synchronized int getMaxId() {
+        return maxId;
+    }
+
+    // streams every segment in archiving order; nothing is cached
+    public synchronized List<Task> find(Predicate<? super Task> filter) throws IOException {
+        List<Task> result = new ArrayList<>();
+        for (int segment = 0; segment < nextSegment; segment++) {
+            if (Files.exists(path(segment))) {
+                for (Task task : read(segment).values()) {
+                    Integer current = segments.get(task.getId());
+                    if (current != null && current == segment && filter.test(task)) {
+                        result.add(task);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void register(int id, int segment) {
+        segments.put(id, Integer.valueOf(segment));
+        maxId = Math.max(maxId, id);
+    }
+
+    private Map<Integer, Task> read(int segment) throws IOException {
+        Map<Integer, Task> tasks = new LinkedHashMap<>();
+        try (BufferedReader reader = open(segment)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length < 3) {
+                    continue;
+                }
+                Task task = gson.fromJson(fields[2], type(TaskType.valueOf(fields[1])));
+                tasks.put(task.getId(), task);
+            }
+        }
+        return tasks;
+    }
+
+    private static Class<? extends Task> type(TaskType type) {
+        switch (type) {
+            case EPIC:
+                return Epic.class;
+            case SUBTASK:
+                return Subtask.class;
+            default:
+                return Task.class;
+        }
+    }
+
+    private BufferedReader open(int segment) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path(segment))), StandardCharsets.UTF_8));
+    }
+
+    private Path path(int segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+}
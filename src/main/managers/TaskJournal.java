@@ -0,0 +1,320 @@
+package main.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import main.adapters.LocalDateTimeAdapter;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import main.util.TaskType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Append-only operation log: one "op<TAB>id[<TAB>type<TAB>json]" line per change. rotate() seals the
+// active log as a numbered segment next to it ("<name>.N"), and writeSnapshot() stores the state as of a
+// sealed segment in "<name>.snapshot" and deletes the segments it covers. Replaying the snapshot, the
+// newer segments and the active log in that order rebuilds the manager.
+// Methods are synchronized so that a JournalWriter thread and the manager can share one journal.
+public class TaskJournal implements Closeable {
+
+    public enum Op {
+        PUT,
+        REMOVE_TASK,
+        REMOVE_EPIC,
+        REMOVE_SUBTASK,
+        REMOVE_ALL_TASKS,
+        REMOVE_ALL_EPICS,
+        REMOVE_ALL_SUBTASKS,
+        VIEW
+    }
+
+    public static class Entry {
+        private final Op op;
+        private final int id;
+        private final Task task;
+
+        private Entry(Op op, int id, Task task) {
+            this.op = op;
+            this.id = id;
+            this.task = task;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+    }
+
+    private static final Gson gson = new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+
+    private static final String SNAPSHOT_HEADER = "SNAPSHOT";
+
+    private final Path path;
+    private final Object snapshotLock = new Object();
+    private FileChannel channel;
+    private BufferedWriter writer;
+    private int records;
+    private boolean scanned;
+    private long nextSegment;
+    private long snapshotCovered = -1;
+    private CompactionStats stats = CompactionStats.NONE;
+
+    public TaskJournal(Path path) {
+        this.path = path;
+    }
+
+    public synchronized void append(Op op, int id, Task task) throws IOException {
+        append(record(op, id, task));
+    }
+
+    // a record made by record(), usually formatted earlier on another thread
+    public synchronized void append(String record) throws IOException {
+        if (writer == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        }
+        writer.write(record);
+        writer.newLine();
+        records++;
+    }
+
+    // hands buffered records to the OS; they survive a crash of the process, not of the machine
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    // flushes and waits until the device has the records
+    public synchronized void force() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            channel.force(false);
+        }
+    }
+
+    // records appended or replayed since the active log was last sealed
+    public synchronized int size() {
+        return records;
+    }
+
+    // Loads the snapshot, then the sealed segments it does not cover, then the active log. A damaged line
+    // ends its file only: a crash in the middle of an append leaves a torn tail, and once that log is
+    // sealed the segments after it are still whole.
+    public synchronized void replay(Consumer<Entry> consumer) throws IOException {
+        close();
+        scan();
+        if (Files.exists(snapshotPath())) {
+            replay(snapshotPath(), consumer, true);
+        }
+        for (long segment : sealedSegments()) {
+            replay(segment(segment), consumer, false);
+        }
+        records = Files.exists(path) ? replay(path, consumer, false) : 0;
+    }
+
+    private int replay(Path file, Consumer<Entry> consumer, boolean snapshot) throws IOException {
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (snapshot) {
+                reader.readLine();
+            }
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                Entry entry;
+                try {
+                    entry = parse(line);
+                } catch (RuntimeException e) {
+                    System.out.println(file.getFileName() + " ends with a damaged record: " + line);
+                    break;
+                }
+                consumer.accept(entry);
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    // Closes the active log under the next segment number and starts a new one. Everything appended
+    // so far is in segments up to the returned number, which a snapshot can then cover.
+    public synchronized long rotate() throws IOException {
+        if (!scanned) {
+            scan();
+        }
+        force();
+        close();
+        long segment = nextSegment++;
+        if (Files.exists(path)) {
+            Files.move(path, segment(segment), StandardCopyOption.ATOMIC_MOVE);
+        }
+        records = 0;
+        return segment;
+    }
+
+    // Writes the state as of the end of segment 'covered', then deletes the segments it replaces. Records
+    // are replayed in the given order, so epics have to precede their subtasks and history ids go oldest
+    // first. Runs without the journal lock, so appends carry on meanwhile; snapshots themselves are
+    // serialized, and one older than the current snapshot is dropped.
+    public void writeSnapshot(long covered, Stream<String> records) throws IOException {
+        synchronized (snapshotLock) {
+            if (covered <= snapshotCovered) {
+                return;
+            }
+            long started = System.nanoTime();
+            Path snapshot = snapshotPath();
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                BufferedWriter buffer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(out),
+                        StandardCharsets.UTF_8));
+                buffer.write(SNAPSHOT_HEADER + "\t" + covered);
+                buffer.newLine();
+                for (Iterator<String> iterator = records.iterator(); iterator.hasNext(); ) {
+                    buffer.write(iterator.next());
+                    buffer.newLine();
+                }
+                buffer.flush();
+                out.force(false);
+            }
+            long before = Files.exists(snapshot) ? Files.size(snapshot) : 0;
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotCovered = covered;
+            for (long segment : segmentsUpTo(covered)) {
+                Path file = segment(segment);
+                before += Files.size(file);
+                Files.delete(file);
+            }
+            stats = stats.record(System.nanoTime() - started, before - Files.size(snapshot));
+        }
+    }
+
+    public CompactionStats getCompactionStats() {
+        synchronized (snapshotLock) {
+            return stats;
+        }
+    }
+
+    // finds the snapshot's coverage and the highest segment, so that new segments sort after both
+    private void scan() throws IOException {
+        synchronized (snapshotLock) {
+            snapshotCovered = -1;
+            if (Files.exists(snapshotPath())) {
+                try (BufferedReader reader = Files.newBufferedReader(snapshotPath(), StandardCharsets.UTF_8)) {
+                    String[] header = String.valueOf(reader.readLine()).split("\t");
+                    if (header.length != 2 || !header[0].equals(SNAPSHOT_HEADER)) {
+                        throw new IOException("Not a journal snapshot: " + snapshotPath());
+                    }
+                    snapshotCovered = Long.parseLong(header[1]);
+                }
+            }
+        }
+        nextSegment = snapshotCovered + 1;
+        for (long segment : segmentsUpTo(Long.MAX_VALUE)) {
+            nextSegment = Math.max(nextSegment, segment + 1);
+        }
+        scanned = true;
+    }
+
+    private List<Long> sealedSegments() throws IOException {
+        List<Long> sealed = new ArrayList<>();
+        for (long segment : segmentsUpTo(Long.MAX_VALUE)) {
+            if (segment > snapshotCovered) {
+                sealed.add(segment);
+            }
+        }
+        return sealed;
+    }
+
+    private List<Long> segmentsUpTo(long last) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        String prefix = path.getFileName() + ".";
+        Path directory = path.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    long segment = Long.parseLong(suffix);
+                    if (segment <= last) {
+                        segments.add(segment);
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segment(long segment) {
+        return path.resolveSibling(path.getFileName() + "." + segment);
+    }
+
+    private Path snapshotPath() {
+        return path.resolveSibling(path.getFileName() + ".snapshot");
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    public static String record(Op op, int id, Task task) {
+        if (task == null) {
+            return op + "\t" + id;
+        }
+        return op + "\t" + id + "\t" + task.getType() + "\t" + gson.toJson(task);
+    }
+
+    private static Entry parse(String line) {
+        String[] fields = line.split("\t", 4);
+        Op op = Op.valueOf(fields[0]);
+        int id = Integer.parseInt(fields[1]);
+        if (op != Op.PUT) {
+            return new Entry(op, id, null);
+        }
+        Task task = gson.fromJson(fields[3], type(TaskType.valueOf(fields[2])));
+        if (task == null || task.getId() == null) {
+            throw new IllegalArgumentException("Incomplete record");
+        }
+        return new Entry(op, id, task);
+    }
+
+    private static Class<? extends Task> type(TaskType type) {
+        switch (type) {
+            case EPIC:
+                return Epic.class;
+            case SUBTASK:
+                return Subtask.class;
+            default:
+                return Task.class;
+        }
+    }
+}
@@ -1,23 +1,36 @@
 package main.managers;
 
+import main.status.Status;
 import main.tasks.Epic;
 import main.tasks.Subtask;
 import main.tasks.Task;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 public interface TaskManager {
     List<Task> getHistory();
 
+    // a page of the history, most recent first
+    List<Task> getRecentHistory(int offset, int limit);
+
     Task addTask(Task task) throws IOException, InterruptedException;
 
     Epic addEpic(Epic epic) throws IOException, InterruptedException;
 
     Subtask addSubtask(Subtask subtask) throws IOException, InterruptedException;
 
+    List<Task> addTasks(List<Task> batch) throws IOException, InterruptedException;
+
+    List<Subtask> addSubtasks(List<Subtask> batch) throws IOException, InterruptedException;
+
     void removeTaskById(int id) throws IOException, InterruptedException;
 
     void removeEpicById(int id) throws IOException, InterruptedException;
@@ -30,6 +43,12 @@ public interface TaskManager {
 
     void removeAllSubtasks() throws IOException, InterruptedException;
 
+    int removeTasksIf(Predicate<? super Task> filter) throws IOException, InterruptedException;
+
+    int removeEpicsIf(Predicate<? super Epic> filter) throws IOException, InterruptedException;
+
+    int removeSubtasksIf(Predicate<? super Subtask> filter) throws IOException, InterruptedException;
+
     Task getTaskById(int id);
 
     Epic getEpicById(int id);
@@ -44,6 +63,16 @@ public interface TaskManager {
 
     List<Subtask> getAllSubtasksByEpicId(int id);
 
+    List<Task> getTasksByStatus(Status status);
+
+    List<Epic> getEpicsByStatus(Status status);
+
+    List<Subtask> getSubtasksByStatus(Status status);
+
+    List<Task> search(String query, int limit);
+
+    TaskSnapshot getSnapshot();
+
     void updateTask(Task task) throws IOException, InterruptedException;
 
     void updateEpic(Epic epic);
@@ -63,8 +92,30 @@ public interface TaskManager {
 
     public List<Task> getPrioritizedTasks();
 
+    List<Task> getPrioritizedTasks(LocalDateTime from, int limit);
+
+    List<Task> getPrioritizedTasksAfter(int afterId, int limit);
+
     void setPrioritizedTasks(Task task);
 
+    List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to);
+
+    LocalDateTime findFreeSlot(LocalDateTime from, int duration);
+
+    long getBookedMinutes(LocalDate from, LocalDate to);
+
+    List<LocalDate> getOverbookedDays(LocalDate from, LocalDate to, int capacityMinutes);
+
+    Task addTaskAutoPlaced(Task task) throws IOException, InterruptedException;
+
+    Subtask addSubtaskAutoPlaced(Subtask subtask) throws IOException, InterruptedException;
+
+    void enableArchive(Path directory, Duration age);
+
+    int archiveDone();
+
+    List<Task> getArchived(Predicate<? super Task> filter);
+
     Integer getId();
 
     boolean isValidSubtaskId(int subtaskId);
@@ -0,0 +1,84 @@
+package main.managers;
+
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable point-in-time view of the manager's collections. It is built once per version
+// and shared by every reader until the next write, so callers iterate it without copying.
+// A new version copies only the collections a write changed and shares the others' lists.
+public class TaskSnapshot {
+    static final int TASKS = 1;
+    static final int EPICS = 2;
+    static final int SUBTASKS = 4;
+    static final int PRIORITIZED = 8;
+    static final int ALL = TASKS | EPICS | SUBTASKS | PRIORITIZED;
+    static final TaskSnapshot EMPTY = new TaskSnapshot(-1, Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList());
+
+    private final long version;
+    private final List<Task> tasks;
+    private final List<Epic> epics;
+    private final List<Subtask> subtasks;
+    private final List<Task> prioritizedTasks;
+
+    public TaskSnapshot(long version, Collection<Task> tasks, Collection<Epic> epics,
+                        Collection<Subtask> subtasks, Collection<Task> prioritizedTasks) {
+        this.version = version;
+        this.tasks = freeze(tasks);
+        this.epics = freeze(epics);
+        this.subtasks = freeze(subtasks);
+        this.prioritizedTasks = freeze(prioritizedTasks);
+    }
+
+    private TaskSnapshot(long version, List<Task> tasks, List<Epic> epics,
+                         List<Subtask> subtasks, List<Task> prioritizedTasks) {
+        this.version = version;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.prioritizedTasks = prioritizedTasks;
+    }
+
+    // the next version: collections named in changed are copied, the rest are this snapshot's lists
+    TaskSnapshot update(long version, int changed, Collection<Task> tasks, Collection<Epic> epics,
+                        Collection<Subtask> subtasks, Collection<Task> prioritizedTasks) {
+        return new TaskSnapshot(version,
+                (changed & TASKS) != 0 ? freeze(tasks) : this.tasks,
+                (changed & EPICS) != 0 ? freeze(epics) : this.epics,
+                (changed & SUBTASKS) != 0 ? freeze(subtasks) : this.subtasks,
+                (changed & PRIORITIZED) != 0 ? freeze(prioritizedTasks) : this.prioritizedTasks);
+    }
+
+    private static <T> List<T> freeze(Collection<T> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<Epic> getEpics() {
+        return epics;
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks;
+    }
+}
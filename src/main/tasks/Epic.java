@@ -20,13 +20,20 @@ public class Epic extends Task {
         this.endTime = getEndTime();
     }
 
-    public void setEndTime(LocalDateTime endTime){
-        this.endTime = endTime;
+    private Epic() {
     }
 
-    @Override
-    public LocalDateTime getEndTime(){
-        return this.getStartTime().plusMinutes(getDuration());
+    // a copy sharing no mutable state with epic, so that it can be written out while epic keeps changing
+    public Epic(Epic epic) {
+        super(epic.getDescription(), epic.getName(), epic.getStatus(), null, epic.getDuration());
+        setId(epic.getId());
+        setStartKey(epic.getStartKey());
+        this.endTime = epic.endTime;
+        this.subtaskIds = new ArrayList<>(epic.subtaskIds);
+    }
+
+    public void setEndTime(LocalDateTime endTime){
+        this.endTime = endTime;
     }
 
     public List<Integer> getSubtaskIds() {
@@ -15,6 +15,10 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    private Subtask() {
+        this.epicId = 0;
+    }
+
     public int getEpicId() {
         return epicId;
     }
@@ -1,20 +1,30 @@
 package main.tasks;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import main.adapters.TimeKeyAdapter;
 import main.status.Status;
+import main.util.IntervalTree;
 import main.util.TaskType;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 
 public class Task {
+    // the start time is kept only as an IntervalTree key (epoch nanos); NO_TIME sorts after every real time
+    public static final long NO_TIME = Long.MAX_VALUE;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
     private String description;
     private Integer id;
     private String name;
     private Status status;
     private int duration;
-    private LocalDateTime startTime;
+    // JSON still carries it as the startTime string
+    @SerializedName("startTime")
+    @JsonAdapter(TimeKeyAdapter.class)
+    private long start = NO_TIME;
 
     private final static DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm - dd.MM.yyyy");
 
@@ -23,16 +33,27 @@ public class Task {
         this.name = name;
         this.status = status;
         this.duration = duration;
-        this.startTime = startTime;
+        setStartTime(startTime);
+    }
+
+    // used by Gson, so fields missing from the JSON keep their defaults
+    protected Task() {
     }
 
     public LocalDateTime getEndTime(){
-        try {
-            return this.startTime.plus(Duration.ofMinutes(this.duration));
-        } catch (NullPointerException e){
-            System.out.print("NullPointerException caught");
-            return null;
-        }
+        return start == NO_TIME ? null : IntervalTree.time(getEndKey());
+    }
+
+    public boolean hasStartTime() {
+        return start != NO_TIME;
+    }
+
+    public long getStartKey() {
+        return start;
+    }
+
+    public long getEndKey() {
+        return start == NO_TIME ? NO_TIME : start + duration * NANOS_PER_MINUTE;
     }
 
     public DateTimeFormatter getFormatter () { return FORMATTER; }
@@ -46,11 +67,16 @@ public class Task {
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return start == NO_TIME ? null : IntervalTree.time(start);
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        this.start = startTime == null ? NO_TIME : IntervalTree.key(startTime);
+    }
+
+    // start as an IntervalTree key, for loaders that store the key
+    public void setStartKey(long start) {
+        this.start = start;
     }
 
     public String getDescription() {
@@ -94,8 +120,8 @@ public class Task {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return id == task.id && Objects.equals(description, task.description) && Objects.equals(name, task.name) &&
-                status == task.status && Objects.equals(startTime, task.startTime) &&
+        return Objects.equals(id, task.id) && Objects.equals(description, task.description) && Objects.equals(name, task.name) &&
+                status == task.status && start == task.start &&
                 Objects.equals(duration, task.duration);
     }
 
@@ -106,9 +132,9 @@ public class Task {
 
     @Override
     public String toString() {
-        if (startTime != null) {
+        if (hasStartTime()) {
             return id + "," + TaskType.TASK + "," + name + "," + status + "," + description + "," +
-                    startTime.format(FORMATTER) + "," + this.getEndTime().format(FORMATTER) + "," + duration + ",\n";
+                    getStartTime().format(FORMATTER) + "," + this.getEndTime().format(FORMATTER) + "," + duration + ",\n";
         } else {
             return "startTime = null";
         }
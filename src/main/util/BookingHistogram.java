@@ -0,0 +1,164 @@
+package main.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Booked seconds per day in a segment tree of sums and maxima with range adds. A booking is one add for its
+// first day, one for its last and one range add of a full day for the days in between, so it costs
+// O(log days) however long it is. An add to a whole subtree stays at its root: sum and max of a node
+// include the adds at the node and below, and the adds above it are carried down by queries. Leaves cover
+// a window of epoch days that doubles towards a new day whenever one falls outside it.
+public class BookingHistogram {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int INITIAL_DAYS = 64;
+
+    private long firstDay;
+    private int days;
+    private long[] sum = new long[0];
+    private long[] max = new long[0];
+    private long[] add = new long[0];
+
+    // start and end are IntervalTree keys (epoch nanos); the booking is split over the days it touches
+    public void add(long start, long end) {
+        update(start, end, 1);
+    }
+
+    public void remove(long start, long end) {
+        update(start, end, -1);
+    }
+
+    public void clear() {
+        days = 0;
+        sum = new long[0];
+        max = new long[0];
+        add = new long[0];
+    }
+
+    private void update(long start, long end, int sign) {
+        long from = Math.floorDiv(start, 1_000_000_000L);
+        long to = Math.floorDiv(end, 1_000_000_000L);
+        if (from >= to) {
+            return;
+        }
+        long first = Math.floorDiv(from, SECONDS_PER_DAY);
+        long last = Math.floorDiv(to - 1, SECONDS_PER_DAY);
+        cover(first);
+        cover(last);
+        if (first == last) {
+            addToDays(first, first + 1, sign * (to - from));
+            return;
+        }
+        addToDays(first, first + 1, sign * ((first + 1) * SECONDS_PER_DAY - from));
+        if (last > first + 1) {
+            addToDays(first + 1, last, sign * SECONDS_PER_DAY);
+        }
+        addToDays(last, last + 1, sign * (to - last * SECONDS_PER_DAY));
+    }
+
+    private void addToDays(long fromDay, long toDay, long seconds) {
+        addToDays(1, firstDay, firstDay + days, fromDay, toDay, seconds);
+    }
+
+    private void addToDays(int node, long nodeFrom, long nodeTo, long fromDay, long toDay, long seconds) {
+        if (nodeTo <= fromDay || nodeFrom >= toDay) {
+            return;
+        }
+        if (fromDay <= nodeFrom && nodeTo <= toDay) {
+            add[node] += seconds;
+            sum[node] += seconds * (nodeTo - nodeFrom);
+            max[node] += seconds;
+            return;
+        }
+        long middle = nodeFrom + (nodeTo - nodeFrom) / 2;
+        addToDays(2 * node, nodeFrom, middle, fromDay, toDay, seconds);
+        addToDays(2 * node + 1, middle, nodeTo, fromDay, toDay, seconds);
+        pull(node, nodeTo - nodeFrom);
+    }
+
+    private void pull(int node, long length) {
+        sum[node] = sum[2 * node] + sum[2 * node + 1] + add[node] * length;
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + add[node];
+    }
+
+    private void cover(long day) {
+        if (days == 0) {
+            firstDay = day - INITIAL_DAYS / 2;
+            resize(firstDay, INITIAL_DAYS);
+            return;
+        }
+        while (day < firstDay || day >= firstDay + days) {
+            resize(day < firstDay ? firstDay - days : firstDay, days * 2);
+        }
+    }
+
+    // the adds are pushed down to the leaves, which are copied into the new window as its only adds
+    private void resize(long newFirstDay, int newDays) {
+        for (int node = 1; node < days; node++) {
+            add[2 * node] += add[node];
+            add[2 * node + 1] += add[node];
+        }
+        long[] newSum = new long[2 * newDays];
+        long[] newMax = new long[2 * newDays];
+        long[] newAdd = new long[2 * newDays];
+        int offset = (int) (firstDay - newFirstDay);
+        for (int i = 0; i < days; i++) {
+            newSum[newDays + offset + i] = add[days + i];
+            newMax[newDays + offset + i] = add[days + i];
+            newAdd[newDays + offset + i] = add[days + i];
+        }
+        firstDay = newFirstDay;
+        days = newDays;
+        sum = newSum;
+        max = newMax;
+        add = newAdd;
+        for (int node = days - 1; node > 0; node--) {
+            pull(node, days >> (31 - Integer.numberOfLeadingZeros(node)));
+        }
+    }
+
+    // booked seconds over the epoch days [fromDay, toDay)
+    public long sum(long fromDay, long toDay) {
+        if (days == 0 || fromDay >= toDay) {
+            return 0;
+        }
+        return sum(1, firstDay, firstDay + days, fromDay, toDay);
+    }
+
+    private long sum(int node, long nodeFrom, long nodeTo, long fromDay, long toDay) {
+        if (nodeTo <= fromDay || nodeFrom >= toDay) {
+            return 0;
+        }
+        if (fromDay <= nodeFrom && nodeTo <= toDay) {
+            return sum[node];
+        }
+        long middle = nodeFrom + (nodeTo - nodeFrom) / 2;
+        long overlap = Math.min(nodeTo, toDay) - Math.max(nodeFrom, fromDay);
+        return add[node] * overlap + sum(2 * node, nodeFrom, middle, fromDay, toDay)
+                + sum(2 * node + 1, middle, nodeTo, fromDay, toDay);
+    }
+
+    // epoch days in [fromDay, toDay) with more than threshold booked seconds, in order;
+    // subtrees whose maximum is within the threshold are skipped
+    public List<Long> daysAbove(long fromDay, long toDay, long threshold) {
+        List<Long> result = new ArrayList<>();
+        if (days > 0) {
+            collect(1, firstDay, firstDay + days, fromDay, toDay, threshold, 0, result);
+        }
+        return result;
+    }
+
+    private void collect(int node, long nodeFrom, long nodeTo, long fromDay, long toDay, long threshold,
+                         long above, List<Long> result) {
+        if (nodeTo <= fromDay || nodeFrom >= toDay || max[node] + above <= threshold) {
+            return;
+        }
+        if (node >= days) {
+            result.add(nodeFrom);
+            return;
+        }
+        long middle = nodeFrom + (nodeTo - nodeFrom) / 2;
+        collect(2 * node, nodeFrom, middle, fromDay, toDay, threshold, above + add[node], result);
+        collect(2 * node + 1, middle, nodeTo, fromDay, toDay, threshold, above + add[node], result);
+    }
+}
@@ -3,14 +3,14 @@ package main.util;
 import main.tasks.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.function.Predicate;
 
 public class CustomLinkedList<T extends Task> {
 
     private Node<T> first;
     private Node<T> last;
-    private final HashMap<Integer, Node<T>> registry = new HashMap<>();
+    private final IntHashMap<Node<T>> registry = new IntHashMap<>();
 
     public void linkLast(T last) {
         Node<T> lastNode = this.last;
@@ -37,6 +37,23 @@ public class CustomLinkedList<T extends Task> {
         return tasks;
     }
 
+    public int size() {
+        return registry.size();
+    }
+
+    public void removeFirst() {
+        if (first != null) {
+            removeNode(first);
+        }
+    }
+
+    public void visitFromLast(int limit, Predicate<? super T> visitor) {
+        Node<T> node = last;
+        for (int i = 0; i < limit && node != null && visitor.test(node.getData()); i++) {
+            node = node.getPrev();
+        }
+    }
+
     public void remove(int id){
         if(registry.containsKey(id)){
             removeNode(registry.get(id));
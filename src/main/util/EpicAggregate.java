@@ -0,0 +1,107 @@
+package main.util;
+
+import main.status.Status;
+import main.tasks.Subtask;
+import main.tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+public class EpicAggregate {
+
+    private final IntHashMap<Contribution> contributions = new IntHashMap<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<Long, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<Long, Integer> endTimes = new TreeMap<>();
+    private int duration;
+
+    public void add(Subtask subtask) {
+        add(subtask.getId(), subtask.getStatus(), subtask.getStartKey(), subtask.getEndKey(), subtask.getDuration());
+    }
+
+    public void add(int subtaskId, Status status, long startKey, long endKey, int minutes) {
+        remove(subtaskId);
+        Contribution contribution = new Contribution(status, startKey, endKey, minutes);
+        contributions.put(subtaskId, contribution);
+        if (contribution.status != null) {
+            statusCounts[contribution.status.ordinal()]++;
+        }
+        increment(startTimes, contribution.startTime);
+        increment(endTimes, contribution.endTime);
+        duration += contribution.duration;
+    }
+
+    public void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.status != null) {
+            statusCounts[contribution.status.ordinal()]--;
+        }
+        decrement(startTimes, contribution.startTime);
+        decrement(endTimes, contribution.endTime);
+        duration -= contribution.duration;
+    }
+
+    public void clear() {
+        contributions.clear();
+        startTimes.clear();
+        endTimes.clear();
+        Arrays.fill(statusCounts, 0);
+        duration = 0;
+    }
+
+    public int size() {
+        return contributions.size();
+    }
+
+    public Status getStatus() {
+        int size = contributions.size();
+        if (size == 0 || statusCounts[Status.NEW.ordinal()] == size) {
+            return Status.NEW;
+        } else if (statusCounts[Status.DONE.ordinal()] == size) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTimes.isEmpty() ? null : IntervalTree.time(startTimes.firstKey());
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTimes.isEmpty() ? null : IntervalTree.time(endTimes.lastKey());
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    private static void increment(TreeMap<Long, Integer> times, long time) {
+        if (time != Task.NO_TIME) {
+            times.merge(time, 1, Integer::sum);
+        }
+    }
+
+    private static void decrement(TreeMap<Long, Integer> times, long time) {
+        if (time != Task.NO_TIME) {
+            times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static class Contribution {
+        private final Status status;
+        private final long startTime;
+        private final long endTime;
+        private final int duration;
+
+        private Contribution(Status status, long startTime, long endTime, int duration) {
+            this.status = status;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.duration = duration;
+        }
+    }
+}
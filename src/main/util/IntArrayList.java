@@ -0,0 +1,137 @@
+package main.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+// List of ids backed by an int[]; elements are boxed only when read through the List interface
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        this.elements = new int[4];
+    }
+
+    public IntArrayList(Collection<Integer> ids) {
+        this.elements = new int[Math.max(4, ids.size())];
+        for (int id : ids) {
+            addInt(id);
+        }
+    }
+
+    public void addInt(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public int indexOfInt(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean removeInt(int value) {
+        int index = indexOfInt(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    private int removeAt(int index) {
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        addInt(0);
+        System.arraycopy(elements, index, elements, index + 1, size - index - 1);
+        elements[index] = value;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        checkIndex(index);
+        return removeAt(index);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && indexOfInt((Integer) value) >= 0;
+    }
+
+    // compacts in one pass instead of shifting the tail once per removed element
+    @Override
+    public boolean removeIf(Predicate<? super Integer> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(elements[i])) {
+                elements[kept++] = elements[i];
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        size = kept;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
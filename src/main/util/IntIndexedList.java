@@ -0,0 +1,196 @@
+package main.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+// List of distinct ids that removes by value in O(1): a position table finds the id, whose slot becomes a
+// hole. Holes are squeezed out in one pass once they outnumber the ids, or before a read by index. The table
+// is built on the first lookup, so lists that only grow never pay for it.
+public class IntIndexedList extends AbstractList<Integer> {
+
+    private static final int HOLE = Integer.MIN_VALUE;
+
+    private int[] elements;
+    // slots in use, holes included
+    private int end;
+    private int size;
+    private IntIntHashMap positions;
+    // bumped by every squeeze, which moves ids to other slots without changing the list
+    private int squeezes;
+
+    public IntIndexedList() {
+        this.elements = new int[4];
+    }
+
+    public IntIndexedList(Collection<Integer> ids) {
+        this.elements = new int[Math.max(4, ids.size())];
+        for (int id : ids) {
+            addInt(id);
+        }
+    }
+
+    public void addInt(int id) {
+        if (end == elements.length) {
+            if (end > size) {
+                squeeze();
+            } else {
+                elements = Arrays.copyOf(elements, end * 2);
+            }
+        }
+        if (positions != null) {
+            positions.put(id, end);
+        }
+        elements[end++] = id;
+        size++;
+        modCount++;
+    }
+
+    public boolean removeInt(int id) {
+        int slot = positions().remove(id);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        elements[slot] = HOLE;
+        size--;
+        modCount++;
+        if (end - size > size) {
+            squeeze();
+        }
+        return true;
+    }
+
+    private IntIntHashMap positions() {
+        if (positions == null) {
+            positions = new IntIntHashMap(size);
+            for (int i = 0; i < end; i++) {
+                if (elements[i] != HOLE) {
+                    positions.put(elements[i], i);
+                }
+            }
+        }
+        return positions;
+    }
+
+    private void squeeze() {
+        int kept = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != HOLE) {
+                if (positions != null) {
+                    positions.put(elements[i], kept);
+                }
+                elements[kept++] = elements[i];
+            }
+        }
+        end = kept;
+        squeezes++;
+    }
+
+    @Override
+    public boolean add(Integer id) {
+        addInt(id);
+        return true;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (end > size) {
+            squeeze();
+        }
+        return elements[index];
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int id = get(index);
+        removeInt(id);
+        return id;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && positions().containsKey((Integer) value);
+    }
+
+    // one pass; the position table is rebuilt on the next lookup
+    @Override
+    public boolean removeIf(Predicate<? super Integer> filter) {
+        int kept = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != HOLE && !filter.test(elements[i])) {
+                elements[kept++] = elements[i];
+            }
+        }
+        boolean removed = kept < size;
+        if (kept < end) {
+            end = kept;
+            size = kept;
+            positions = null;
+            squeezes++;
+        }
+        if (removed) {
+            modCount++;
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        end = 0;
+        size = 0;
+        positions = null;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // skips the holes instead of squeezing them out
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int next = skipHoles(0);
+            private final int expectedModCount = modCount;
+            private final int expectedSqueezes = squeezes;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (modCount != expectedModCount || squeezes != expectedSqueezes) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                int id = elements[next];
+                next = skipHoles(next + 1);
+                return id;
+            }
+        };
+    }
+
+    private int skipHoles(int from) {
+        while (from < end && elements[from] == HOLE) {
+            from++;
+        }
+        return from;
+    }
+}
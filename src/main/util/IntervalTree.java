@@ -0,0 +1,338 @@
+package main.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// AVL tree of [start, end) intervals ordered by start and id. Each node keeps the min start, the max end
+// and the widest gap between consecutive intervals of its subtree; the gaps assume intervals do not overlap.
+public class IntervalTree {
+
+    private IntervalNode root;
+    private final IntHashMap<IntervalNode> nodes = new IntHashMap<>();
+
+    private static final long MAX_KEY_SECONDS = Long.MAX_VALUE / 1_000_000_000L - 1;
+    private static final long MIN_KEY_SECONDS = Long.MIN_VALUE / 1_000_000_000L + 1;
+
+    // times further than about 292 years from 1970 saturate; Long.MAX_VALUE itself stays free for Task.NO_TIME
+    public static long key(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds > MAX_KEY_SECONDS) {
+            return Long.MAX_VALUE - 1;
+        }
+        if (seconds < MIN_KEY_SECONDS) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * 1_000_000_000L + time.getNano();
+    }
+
+    public static LocalDateTime time(long key) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(key, 1_000_000_000L),
+                (int) Math.floorMod(key, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    public void add(int id, long start, long end) {
+        remove(id);
+        IntervalNode node = new IntervalNode(id, start, end);
+        root = insert(root, node);
+        nodes.put(id, node);
+    }
+
+    // Intervals already in (start, id) order go into an empty tree as a balanced tree built bottom-up in
+    // linear time; into a non-empty tree they are added one by one.
+    public void addAllSorted(int[] ids, long[] starts, long[] ends, int count) {
+        if (root != null) {
+            for (int i = 0; i < count; i++) {
+                add(ids[i], starts[i], ends[i]);
+            }
+            return;
+        }
+        root = build(ids, starts, ends, 0, count - 1);
+    }
+
+    private IntervalNode build(int[] ids, long[] starts, long[] ends, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        IntervalNode node = new IntervalNode(ids[middle], starts[middle], ends[middle]);
+        nodes.put(ids[middle], node);
+        node.left = build(ids, starts, ends, from, middle - 1);
+        node.right = build(ids, starts, ends, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    public void remove(int id) {
+        IntervalNode node = nodes.remove(id);
+        if (node != null) {
+            root = delete(root, node);
+        }
+    }
+
+    public boolean contains(int id) {
+        return nodes.containsKey(id);
+    }
+
+    public long start(int id) {
+        return nodes.get(id).start;
+    }
+
+    public long end(int id) {
+        return nodes.get(id).end;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    public Integer findOverlap(long start, long end, int excludeId) {
+        IntervalNode node = findOverlap(root, start, end, excludeId);
+        return node == null ? null : node.id;
+    }
+
+    private IntervalNode findOverlap(IntervalNode node, long start, long end, int excludeId) {
+        if (node == null || node.maxEnd <= start) {
+            return null;
+        }
+        IntervalNode found = findOverlap(node.left, start, end, excludeId);
+        if (found != null) {
+            return found;
+        }
+        if (node.start >= end) {
+            return null;
+        }
+        if (node.end > start && node.id != excludeId) {
+            return node;
+        }
+        return findOverlap(node.right, start, end, excludeId);
+    }
+
+    // ids of intervals intersecting [from, to) in start order; an empty interval counts when it lies inside
+    public List<Integer> findIntersecting(long from, long to) {
+        List<Integer> result = new ArrayList<>();
+        collect(root, from, to, result);
+        return result;
+    }
+
+    private void collect(IntervalNode node, long from, long to, List<Integer> result) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, result);
+        if (node.start >= to) {
+            return;
+        }
+        if (node.end > from || node.start >= from) {
+            result.add(node.id);
+        }
+        collect(node.right, from, to, result);
+    }
+
+    // ids in (start, id) order from the given position on; the stack holds the path of pending ancestors
+    public PrimitiveIterator.OfInt ascending(long start, int id, boolean inclusive) {
+        Deque<IntervalNode> stack = new ArrayDeque<>();
+        for (IntervalNode node = root; node != null; ) {
+            int cmp = node.start != start ? Long.compare(node.start, start) : Integer.compare(node.id, id);
+            if (cmp > 0 || cmp == 0 && inclusive) {
+                stack.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public int nextInt() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                IntervalNode next = stack.pop();
+                for (IntervalNode node = next.right; node != null; node = node.left) {
+                    stack.push(node);
+                }
+                return next.id;
+            }
+        };
+    }
+
+    // earliest start at or after from where an interval of the given length overlaps nothing
+    public long findFreeStart(long from, long length) {
+        long[] cursor = {from};
+        Long found = findFreeStart(root, cursor, length);
+        return found != null ? found : cursor[0];
+    }
+
+    // walks the subtree in order, cursor[0] being the end of the busy time seen so far
+    private Long findFreeStart(IntervalNode node, long[] cursor, long length) {
+        if (node == null || node.maxEnd <= cursor[0]) {
+            return null;
+        }
+        if (node.minStart - cursor[0] >= length) {
+            return cursor[0];
+        }
+        if (node.maxGap < length) {
+            cursor[0] = Math.max(cursor[0], node.maxEnd);
+            return null;
+        }
+        Long found = findFreeStart(node.left, cursor, length);
+        if (found != null) {
+            return found;
+        }
+        if (node.start - cursor[0] >= length) {
+            return cursor[0];
+        }
+        cursor[0] = Math.max(cursor[0], node.end);
+        return findFreeStart(node.right, cursor, length);
+    }
+
+    private static int compare(IntervalNode a, IntervalNode b) {
+        int result = Long.compare(a.start, b.start);
+        return result != 0 ? result : Integer.compare(a.id, b.id);
+    }
+
+    private IntervalNode insert(IntervalNode node, IntervalNode newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode, node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private IntervalNode delete(IntervalNode node, IntervalNode target) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(target, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, target);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, target);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            IntervalNode successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private IntervalNode deleteMin(IntervalNode node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(IntervalNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(IntervalNode node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+        node.minStart = node.left != null ? node.left.minStart : node.start;
+        long maxGap = 0;
+        long endBefore = node.end;
+        if (node.left != null) {
+            maxGap = Math.max(node.left.maxGap, node.start - node.left.maxEnd);
+            endBefore = Math.max(endBefore, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxGap = Math.max(maxGap, Math.max(node.right.maxGap, node.right.minStart - endBefore));
+        }
+        node.maxGap = maxGap;
+    }
+
+    private IntervalNode balance(IntervalNode node) {
+        update(node);
+        int diff = height(node.left) - height(node.right);
+        if (diff > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (diff < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private IntervalNode rotateRight(IntervalNode node) {
+        IntervalNode left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private IntervalNode rotateLeft(IntervalNode node) {
+        IntervalNode right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static class IntervalNode {
+        private final int id;
+        private final long start;
+        private final long end;
+        private long maxEnd;
+        private long minStart;
+        private long maxGap;
+        private int height = 1;
+        private IntervalNode left;
+        private IntervalNode right;
+
+        private IntervalNode(int id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.minStart = start;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package main.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Term -> (id -> term frequency) posting lists. Each id also keeps its own terms,
+// so it can be removed or re-indexed without scanning the postings.
+public class InvertedIndex {
+
+    private final Map<String, IntHashMap<Integer>> postings = new HashMap<>();
+    private final IntHashMap<String[]> documents = new IntHashMap<>();
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public void put(int id, String... texts) {
+        remove(id);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String text : texts) {
+            for (String token : tokenize(text)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+        if (frequencies.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new IntHashMap<>()).put(id, entry.getValue());
+        }
+        documents.put(id, frequencies.keySet().toArray(new String[0]));
+    }
+
+    public void remove(int id) {
+        String[] terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            IntHashMap<Integer> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // ids ranked by the tf-idf sum over the query terms, best first
+    public List<Integer> search(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        IntHashMap<double[]> scores = new IntHashMap<>();
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            IntHashMap<Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) documents.size() / posting.size());
+            for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+                double[] score = scores.get((int) entry.getKey());
+                if (score == null) {
+                    scores.put((int) entry.getKey(), new double[]{entry.getValue() * idf});
+                } else {
+                    score[0] += entry.getValue() * idf;
+                }
+            }
+        }
+        // min-heap of the best hits so far; ties go to the older id
+        PriorityQueue<Map.Entry<Integer, double[]>> top = new PriorityQueue<>((a, b) -> a.getValue()[0] == b.getValue()[0]
+                ? Integer.compare(b.getKey(), a.getKey()) : Double.compare(a.getValue()[0], b.getValue()[0]));
+        for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Integer> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
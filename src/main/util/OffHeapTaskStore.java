@@ -0,0 +1,351 @@
+package main.util;
+
+import main.status.Status;
+import main.tasks.Subtask;
+import main.tasks.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Tasks and subtasks as rows of direct-buffer columns indexed by id: type, status, epic id, start key
+// and duration, plus name and description references into an off-heap UTF-8 arena. Objects are only
+// created when a row is read; the arena is compacted once more than half of it is garbage.
+public class OffHeapTaskStore {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_ARENA = 64 * 1024;
+    private static final long NO_TEXT = -1;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+    // the widest column holds a long per id and a direct buffer is int-indexed
+    public static final int MAX_ID = Integer.MAX_VALUE / Long.BYTES - 1;
+
+    private ByteBuffer types = ByteBuffer.allocateDirect(INITIAL_ROWS);
+    private ByteBuffer statuses = ByteBuffer.allocateDirect(INITIAL_ROWS);
+    private ByteBuffer epicIds = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+    private ByteBuffer starts = ByteBuffer.allocateDirect(INITIAL_ROWS * Long.BYTES);
+    private ByteBuffer durations = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+    private ByteBuffer names = ByteBuffer.allocateDirect(INITIAL_ROWS * Long.BYTES);
+    private ByteBuffer descriptions = ByteBuffer.allocateDirect(INITIAL_ROWS * Long.BYTES);
+    private int rows = INITIAL_ROWS;
+    private int maxId;
+    private final int[] counts = new int[TaskType.values().length];
+
+    private ByteBuffer arena = ByteBuffer.allocateDirect(INITIAL_ARENA);
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    public void put(Task task) {
+        int id = task.getId();
+        if (id <= 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Invalid task ID: " + id);
+        }
+        ensureRows(id + 1);
+        remove(id);
+        // the strings go first: a write may compact the arena, which only walks occupied rows
+        long name = write(task.getName());
+        long description = write(task.getDescription());
+        statuses.put(id, (byte) (task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1));
+        epicIds.putInt(id * Integer.BYTES, task instanceof Subtask ? ((Subtask) task).getEpicId() : 0);
+        starts.putLong(id * Long.BYTES, task.getStartKey());
+        durations.putInt(id * Integer.BYTES, task.getDuration());
+        names.putLong(id * Long.BYTES, name);
+        descriptions.putLong(id * Long.BYTES, description);
+        types.put(id, (byte) (task.getType().ordinal() + 1));
+        counts[task.getType().ordinal()]++;
+        maxId = Math.max(maxId, id);
+    }
+
+    public boolean remove(int id) {
+        TaskType type = type(id);
+        if (type == null) {
+            return false;
+        }
+        release(names.getLong(id * Long.BYTES));
+        release(descriptions.getLong(id * Long.BYTES));
+        types.put(id, (byte) 0);
+        counts[type.ordinal()]--;
+        compactIfSparse();
+        return true;
+    }
+
+    public TaskType type(int id) {
+        if (id <= 0 || id > maxId) {
+            return null;
+        }
+        int type = types.get(id);
+        return type == 0 ? null : TaskType.values()[type - 1];
+    }
+
+    public boolean contains(int id, TaskType type) {
+        return type != null && type == type(id);
+    }
+
+    public int size(TaskType type) {
+        return counts[type.ordinal()];
+    }
+
+    public Status status(int id) {
+        int status = statuses.get(id);
+        return status == 0 ? null : Status.values()[status - 1];
+    }
+
+    public int epicId(int id) {
+        return epicIds.getInt(id * Integer.BYTES);
+    }
+
+    public long startKey(int id) {
+        return starts.getLong(id * Long.BYTES);
+    }
+
+    public long endKey(int id) {
+        long start = startKey(id);
+        return start == Task.NO_TIME ? Task.NO_TIME : start + duration(id) * NANOS_PER_MINUTE;
+    }
+
+    public int duration(int id) {
+        return durations.getInt(id * Integer.BYTES);
+    }
+
+    // builds a fresh object from the row; null when the id holds nothing
+    public Task get(int id) {
+        TaskType type = type(id);
+        if (type == null) {
+            return null;
+        }
+        long start = startKey(id);
+        Task task;
+        if (type == TaskType.SUBTASK) {
+            task = new Subtask(read(descriptions.getLong(id * Long.BYTES)), read(names.getLong(id * Long.BYTES)),
+                    status(id), epicId(id), start == Task.NO_TIME ? null : IntervalTree.time(start), duration(id));
+        } else {
+            task = new Task(read(descriptions.getLong(id * Long.BYTES)), read(names.getLong(id * Long.BYTES)),
+                    status(id), start == Task.NO_TIME ? null : IntervalTree.time(start), duration(id));
+        }
+        task.setId(id);
+        return task;
+    }
+
+    public void clear(TaskType type) {
+        byte typeCode = (byte) (type.ordinal() + 1);
+        for (int id = 1; id <= maxId; id++) {
+            if (types.get(id) == typeCode) {
+                remove(id);
+            }
+        }
+    }
+
+    public long offHeapBytes() {
+        return (long) rows * (2 + 2 * Integer.BYTES + 3 * Long.BYTES) + arena.capacity();
+    }
+
+    // map view of one type, as the manager's tasks or subtasks storage
+    @SuppressWarnings("unchecked")
+    public <T extends Task> Map<Integer, T> view(TaskType type) {
+        return new AbstractMap<>() {
+            @Override
+            public T get(Object key) {
+                return key instanceof Integer && contains((Integer) key, type) ? (T) OffHeapTaskStore.this.get((Integer) key) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof Integer && contains((Integer) key, type);
+            }
+
+            @Override
+            public T put(Integer key, T value) {
+                if (value.getType() != type || value.getId() == null || value.getId().intValue() != key) {
+                    throw new IllegalArgumentException("Task " + value.getId() + " cannot be stored as " + type + " " + key);
+                }
+                T previous = get(key);
+                OffHeapTaskStore.this.put(value);
+                return previous;
+            }
+
+            @Override
+            public T remove(Object key) {
+                T previous = get(key);
+                if (previous != null) {
+                    OffHeapTaskStore.this.remove((Integer) key);
+                }
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return OffHeapTaskStore.this.size(type);
+            }
+
+            @Override
+            public void clear() {
+                OffHeapTaskStore.this.clear(type);
+            }
+
+            @Override
+            public Set<Entry<Integer, T>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        return OffHeapTaskStore.this.size(type);
+                    }
+
+                    @Override
+                    public Iterator<Entry<Integer, T>> iterator() {
+                        return new RowIterator<>(type);
+                    }
+                };
+            }
+        };
+    }
+
+    // walks the type column; values are materialized only when an entry's value is asked for
+    private class RowIterator<T extends Task> implements Iterator<Map.Entry<Integer, T>> {
+        private final byte typeCode;
+        private int next;
+        private int last = -1;
+
+        private RowIterator(TaskType type) {
+            this.typeCode = (byte) (type.ordinal() + 1);
+            this.next = advance(1);
+        }
+
+        private int advance(int from) {
+            while (from <= maxId && types.get(from) != typeCode) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next <= maxId;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Integer, T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int id = next;
+            last = id;
+            next = advance(id + 1);
+            return new AbstractMap.SimpleEntry<>(id, null) {
+                @Override
+                public T getValue() {
+                    return (T) get(id);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            OffHeapTaskStore.this.remove(last);
+            last = -1;
+        }
+    }
+
+    private void ensureRows(int required) {
+        if (required <= rows) {
+            return;
+        }
+        int newRows = rows;
+        while (newRows < required) {
+            newRows = newRows > Integer.MAX_VALUE / 2 / Long.BYTES ? required : newRows * 2;
+        }
+        types = grow(types, newRows);
+        statuses = grow(statuses, newRows);
+        epicIds = grow(epicIds, newRows * Integer.BYTES);
+        starts = grow(starts, newRows * Long.BYTES);
+        durations = grow(durations, newRows * Integer.BYTES);
+        names = grow(names, newRows * Long.BYTES);
+        descriptions = grow(descriptions, newRows * Long.BYTES);
+        rows = newRows;
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        column.clear();
+        grown.put(column);
+        grown.clear();
+        return grown;
+    }
+
+    // a reference packs the arena offset into the high half and the byte length into the low half
+    private long write(String text) {
+        if (text == null) {
+            return NO_TEXT;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (arena.capacity() - arenaUsed < bytes.length) {
+            compact(bytes.length);
+        }
+        arena.position(arenaUsed);
+        arena.put(bytes);
+        long reference = (long) arenaUsed << 32 | bytes.length;
+        arenaUsed += bytes.length;
+        return reference;
+    }
+
+    private String read(long reference) {
+        if (reference == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) reference];
+        arena.get((int) (reference >>> 32), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void release(long reference) {
+        if (reference != NO_TEXT) {
+            arenaGarbage += (int) reference;
+        }
+    }
+
+    private void compactIfSparse() {
+        if (arenaGarbage > INITIAL_ARENA && arenaGarbage > arenaUsed / 2) {
+            compact(0);
+        }
+    }
+
+    // copies the live strings into a new arena sized for them plus the pending write
+    private void compact(int pending) {
+        long live = (long) arenaUsed - arenaGarbage + pending;
+        long capacity = Math.max(INITIAL_ARENA, arena.capacity());
+        while (capacity < live * 2 && capacity < Integer.MAX_VALUE) {
+            capacity = Math.min(capacity * 2, Integer.MAX_VALUE);
+        }
+        if (live > capacity) {
+            throw new IllegalStateException("Text arena is full");
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect((int) capacity);
+        for (int id = 1; id <= maxId; id++) {
+            if (types.get(id) != 0) {
+                names.putLong(id * Long.BYTES, move(names.getLong(id * Long.BYTES), compacted));
+                descriptions.putLong(id * Long.BYTES, move(descriptions.getLong(id * Long.BYTES), compacted));
+            }
+        }
+        arena = compacted;
+        arenaUsed = compacted.position();
+        arenaGarbage = 0;
+    }
+
+    private long move(long reference, ByteBuffer target) {
+        if (reference == NO_TEXT) {
+            return NO_TEXT;
+        }
+        int length = (int) reference;
+        long moved = (long) target.position() << 32 | length;
+        target.put(arena.slice((int) (reference >>> 32), length));
+        return moved;
+    }
+}
@@ -0,0 +1,67 @@
+package main.util;
+
+import main.status.Status;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ids grouped by task type and status. The status an id was indexed under is remembered,
+// so a task changed in place before its update still leaves its old bucket.
+public class StatusIndex {
+
+    private final Map<TaskType, Map<Status, Set<Integer>>> buckets = new EnumMap<>(TaskType.class);
+    private final Map<Integer, Status> indexed;
+
+    public StatusIndex(boolean concurrent) {
+        this.indexed = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        for (TaskType type : TaskType.values()) {
+            Map<Status, Set<Integer>> byStatus = new EnumMap<>(Status.class);
+            for (Status status : Status.values()) {
+                byStatus.put(status, concurrent ? ConcurrentHashMap.newKeySet() : new LinkedHashSet<>());
+            }
+            buckets.put(type, byStatus);
+        }
+    }
+
+    public void put(TaskType type, int id, Status status) {
+        Status previous = status != null ? indexed.put(id, status) : indexed.remove(id);
+        if (previous == status) {
+            return;
+        }
+        if (previous != null) {
+            buckets.get(type).get(previous).remove(id);
+        }
+        if (status != null) {
+            buckets.get(type).get(status).add(id);
+        }
+    }
+
+    public void remove(TaskType type, int id) {
+        Status previous = indexed.remove(id);
+        if (previous != null) {
+            buckets.get(type).get(previous).remove(id);
+        }
+    }
+
+    public Set<Integer> get(TaskType type, Status status) {
+        return Collections.unmodifiableSet(buckets.get(type).get(status));
+    }
+
+    public int count(TaskType type, Status status) {
+        return buckets.get(type).get(status).size();
+    }
+
+    public void clear(TaskType type) {
+        for (Set<Integer> ids : buckets.get(type).values()) {
+            for (Integer id : ids) {
+                indexed.remove(id);
+            }
+            ids.clear();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+import main.managers.ArrayHistoryManager;
+import main.managers.HistoryManager;
+
+public class ArrayHistoryManagerTest extends HistoryManagerTest {
+
+    @Override
+    protected HistoryManager createHistoryManager(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+}
@@ -0,0 +1,84 @@
+import main.managers.BinarySnapshot;
+import main.managers.FileBackedTasksManager;
+import main.managers.Managers;
+import main.managers.PersistenceMode;
+import main.status.Status;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BinaryFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTasksManager> {
+    public static final Path path = Path.of("data.test.bin");
+    File file = new File(String.valueOf(path));
+
+    @Override
+    protected FileBackedTasksManager createTaskManager() {
+        return new FileBackedTasksManager(Managers.getDefaultHistory(), file, PersistenceMode.BINARY);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        taskManager = createTaskManager();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void shouldSaveAndLoadBinarySnapshot() throws IOException, InterruptedException {
+        Task task = taskManager.addTask(new Task("Buy milk, bread", "Shopping, weekly", Status.IN_PROGRESS,
+                LocalDateTime.of(2022, 3, 10, 12, 0), 50));
+        Task unscheduled = taskManager.addTask(new Task(null, "Someday", Status.NEW, null, 0));
+        Epic epic = new Epic("Move", "Relocation", Status.NEW);
+        epic.setId(1);
+        int epicId = taskManager.addEpic(epic).getId();
+        taskManager.addSubtask(new Subtask("Pack", "Boxes", Status.DONE, epicId,
+                LocalDateTime.of(2022, 6, 1, 11, 30), 30));
+        taskManager.addSubtask(new Subtask("Drive", "Truck", Status.NEW, epicId,
+                LocalDateTime.of(2022, 6, 2, 9, 0), 240));
+        taskManager.getEpicById(epicId);
+        taskManager.getTaskById(unscheduled.getId());
+        taskManager.getTaskById(task.getId());
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(taskManager.getAllEpics(), loaded.getAllEpics());
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(taskManager.getHistory(), loaded.getHistory());
+        assertEquals(taskManager.getPrioritizedTasks(), loaded.getPrioritizedTasks());
+        assertEquals(Status.IN_PROGRESS, loaded.getEpicById(epicId).getStatus());
+    }
+
+
+    @Test
+    public void snapshotShouldKeepSubMinuteStartAndMissingStatus() throws IOException {
+        Task precise = new Task("A", "B", null, LocalDateTime.of(2022, 3, 10, 12, 0, 15, 500), 50);
+        precise.setId(3);
+        BinarySnapshot.write(path, List.of(precise), List.of(3));
+
+        List<Task> items = new ArrayList<>();
+        BinarySnapshot.read(path, items::add, id -> { });
+
+        assertEquals(List.of(precise), items);
+        assertNull(items.get(0).getStatus());
+        assertEquals(precise.getStartKey(), items.get(0).getStartKey());
+    }
+}
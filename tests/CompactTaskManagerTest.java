@@ -0,0 +1,83 @@
+import main.managers.InMemoryTaskManager;
+import main.managers.Managers;
+import main.managers.StorageMode;
+import main.util.IntHashMap;
+import main.util.IntIndexedList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CompactTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
+
+    @Override
+    protected InMemoryTaskManager createTaskManager() {
+        return new InMemoryTaskManager(Managers.getDefaultHistory(), StorageMode.COMPACT);
+    }
+
+    @Test
+    void iteratorRemoveShouldVisitEachKeyOnceInANearlyFullTable() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            IntHashMap<Integer> map = new IntHashMap<>(12);
+            Set<Integer> keys = new HashSet<>();
+            while (keys.size() < 12) {
+                keys.add(random.nextInt(64));
+            }
+            for (int key : keys) {
+                map.put(key, Integer.valueOf(key));
+            }
+            Set<Integer> kept = new HashSet<>();
+            List<Integer> seen = new ArrayList<>();
+            for (Iterator<Integer> iterator = map.keySet().iterator(); iterator.hasNext(); ) {
+                int key = iterator.next();
+                seen.add(key);
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                } else {
+                    kept.add(key);
+                }
+            }
+            assertEquals(keys.size(), seen.size());
+            assertEquals(keys, new HashSet<>(seen));
+            assertEquals(kept, map.keySet());
+        }
+    }
+
+
+    @Test
+    public void indexedListShouldKeepOrderThroughRemovals() {
+        Random random = new Random(42);
+        IntIndexedList ids = new IntIndexedList();
+        List<Integer> expected = new ArrayList<>();
+        int next = 1;
+        for (int round = 0; round < 20000; round++) {
+            int op = random.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                ids.add(next);
+                expected.add(next++);
+            } else if (op < 8) {
+                Integer id = expected.get(random.nextInt(expected.size()));
+                assertEquals(expected.remove(id), ids.remove(id));
+            } else if (op < 9) {
+                int id = random.nextInt(next + 1);
+                assertEquals(expected.contains(id), ids.contains(id));
+            } else {
+                int divisor = 2 + random.nextInt(5);
+                assertEquals(expected.removeIf(id -> id % divisor == 0), ids.removeIf(id -> id % divisor == 0));
+            }
+            assertEquals(expected.size(), ids.size());
+            if (round % 100 == 0) {
+                assertEquals(expected, new ArrayList<>(ids));
+                assertEquals(expected, ids);
+            }
+        }
+        assertEquals(expected, ids);
+    }
+}
@@ -0,0 +1,223 @@
+import main.managers.ConcurrentTaskManager;
+import main.managers.Managers;
+import main.status.Status;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager(Managers.getDefaultHistory());
+    }
+
+    @Test
+    void shouldKeepScheduleConsistentUnderConcurrentWrites() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Epic epic = new Epic("Epic " + i, "Description", Status.NEW);
+            epic.setId(1);
+            epics.add(taskManager.addEpic(epic));
+        }
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int slot = thread * perThread + i;
+                    taskManager.addSubtask(new Subtask("Subtask", "Description", Status.DONE,
+                            epics.get(thread).getId(), start.plusMinutes(slot * 20L), 10));
+                    taskManager.addTask(new Task("Task", "Description", Status.NEW,
+                            start.plusMinutes(slot * 20L + 10), 10));
+                    taskManager.getAllSubtasks();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, taskManager.getAllSubtasks().size());
+        assertEquals(threads * perThread, taskManager.getAllTasks().size());
+        assertEquals(2 * threads * perThread, taskManager.getPrioritizedTasks().size());
+        for (Epic epic : epics) {
+            assertEquals(Status.DONE, epic.getStatus());
+            assertEquals(perThread * 10, epic.getDuration());
+        }
+    }
+
+
+    @Test
+    void snapshotShouldHoldEveryWriteThatReturned() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Task task = taskManager.addTask(new Task("Task", "Description", Status.NEW, null, 0));
+                    assertTrue(taskManager.getAllTasks().contains(task));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, taskManager.getAllTasks().size());
+        assertEquals(threads * perThread, taskManager.getPrioritizedTasks().size());
+    }
+
+
+    @Test
+    void shouldKeepEpicConsistentWhenSubtasksAreUpdatedAndRemovedConcurrently() throws Exception {
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        int epicId = taskManager.addEpic(epic).getId();
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        List<Subtask> added = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            added.add(taskManager.addSubtask(new Subtask("Subtask", "Description", Status.NEW, epicId,
+                    start.plusMinutes(i * 20L), 10)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = thread; i < added.size(); i += 4) {
+                    Subtask subtask = added.get(i);
+                    if (i % 2 == 0) {
+                        taskManager.removeSubtaskById(subtask.getId());
+                    } else {
+                        Subtask done = new Subtask("Subtask", "Description", Status.DONE, epicId,
+                                subtask.getStartTime(), 10);
+                        done.setId(subtask.getId());
+                        taskManager.updateSubtask(done);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(200, taskManager.getAllSubtasks().size());
+        assertEquals(200, taskManager.getEpicById(epicId).getSubtaskIds().size());
+        assertEquals(Status.DONE, taskManager.getEpicById(epicId).getStatus());
+        assertEquals(200 * 10, taskManager.getEpicById(epicId).getDuration());
+    }
+
+    @Test
+    void addsShouldNotLandInsideRemoveAll() throws Exception {
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    taskManager.addTask(new Task("Task", "Description", Status.NEW, null, 0));
+                    Epic epic = new Epic("Epic", "Description", Status.NEW);
+                    epic.setId(1);
+                    taskManager.addEpic(epic);
+                }
+                return null;
+            }));
+        }
+        Future<?> remover = executor.submit(() -> {
+            while (!futures.stream().allMatch(Future::isDone)) {
+                taskManager.removeAllTasks();
+                taskManager.removeAllEpics();
+            }
+            return null;
+        });
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        remover.get();
+        executor.shutdown();
+
+        assertEquals(taskManager.getTaskList().size(), taskManager.getTasksByStatus(Status.NEW).size());
+        assertEquals(taskManager.getTaskList().size(), taskManager.getAllTasks().size());
+        assertEquals(taskManager.getEpicsList().size(), taskManager.getEpicsByStatus(Status.NEW).size());
+        assertEquals(taskManager.getEpicsList().size(), taskManager.getAllEpics().size());
+        for (Task found : taskManager.search("Epic", Integer.MAX_VALUE)) {
+            assertTrue(taskManager.getEpicsList().containsKey(found.getId()));
+        }
+    }
+
+    @Test
+    void autoPlacedWritesShouldNotDeadlockWithTheArchiveSweep(@TempDir Path directory) throws Exception {
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        int epicId = taskManager.addEpic(epic).getId();
+        LocalDateTime start = LocalDateTime.now().minusDays(10);
+        MovableClock clock = new MovableClock();
+        taskManager.enableArchive(directory, Duration.ofDays(1), clock);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+                taskManager.addTaskAutoPlaced(new Task("Task", "Description", Status.DONE, start, 10));
+            }
+            return null;
+        }));
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+                taskManager.addSubtaskAutoPlaced(new Subtask("Subtask", "Description", Status.NEW, epicId, start, 10));
+            }
+            return null;
+        }));
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 500; i++) {
+                taskManager.addSubtasks(List.of(new Subtask("Subtask", "Description", Status.NEW, epicId, null, 0)));
+            }
+            return null;
+        }));
+        Future<?> ticker = executor.submit(() -> {
+            while (!futures.stream().allMatch(Future::isDone)) {
+                clock.advance(Duration.ofMinutes(2));
+                Thread.yield();
+            }
+            return null;
+        });
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            ticker.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, taskManager.getAllSubtasks().size());
+        assertTrue(taskManager.getArchived(task -> true).size() > 0);
+    }
+}
@@ -15,6 +15,7 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -100,4 +101,50 @@ class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksManager>
         assertEquals(test.getPrioritizedTasks(), test.getPrioritizedTasks());
         assertNotNull(test);
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void bulkLoadShouldMatchLoadFromFile() throws IOException, InterruptedException {
+        taskManager.addTask(new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0), 50));
+        Epic epic = new Epic("TestEpic", "Test description", Status.NEW);
+        epic.setId(1);
+        int epicId = taskManager.addEpic(epic).getId();
+        taskManager.addSubtask(new Subtask("First", "TestSubTask", Status.DONE, epicId,
+                LocalDateTime.of(2022, 6, 1, 11, 30), 30));
+        Subtask second = taskManager.addSubtask(new Subtask("Second", "TestSubTask", Status.NEW, epicId,
+                LocalDateTime.of(2022, 1, 10, 12, 0), 30));
+        Task late = taskManager.addTask(new Task("C", "D", Status.DONE, LocalDateTime.of(2021, 2, 10, 12, 0), 50));
+        taskManager.getSubtaskById(second.getId());
+        taskManager.getTaskById(late.getId());
+        taskManager.getEpicById(epicId);
+
+        FileBackedTasksManager expected = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        expected.loadFromFile();
+        FileBackedTasksManager bulk = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        bulk.bulkLoadFromFile(new ForkJoinPool(2));
+
+        assertEquals(expected.getAllTasks(), bulk.getAllTasks());
+        assertEquals(expected.getAllEpics(), bulk.getAllEpics());
+        assertEquals(expected.getAllSubtasks(), bulk.getAllSubtasks());
+        assertEquals(expected.getHistory(), bulk.getHistory());
+        assertEquals(expected.getPrioritizedTasks(), bulk.getPrioritizedTasks());
+        assertEquals(Status.IN_PROGRESS, bulk.getEpicById(epicId).getStatus());
+        assertEquals(expected.getEpicById(epicId).getStartTime(), bulk.getEpicById(epicId).getStartTime());
+    }
+
+
+    @Test
+    public void bulkLoadShouldReadHistoryFollowedByNewline() throws IOException {
+        Task task = taskManager.addTask(new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0), 50));
+        Task other = taskManager.addTask(new Task("C", "D", Status.DONE, LocalDateTime.of(2021, 2, 10, 12, 0), 50));
+        taskManager.getTaskById(other.getId());
+        taskManager.getTaskById(task.getId());
+        Files.writeString(path, Files.readString(path) + "\n");
+
+        FileBackedTasksManager bulk = new FileBackedTasksManager(Managers.getDefaultHistory(), file);
+        bulk.bulkLoadFromFile(new ForkJoinPool(2));
+
+        assertEquals(List.of(task, other), bulk.getAllTasks());
+        assertEquals(List.of(other, task), bulk.getHistory());
+    }
+}
\ No newline at end of file
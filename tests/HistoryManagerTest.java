@@ -14,10 +14,15 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class HistoryManagerTest {
-    HistoryManager historyManager = new InMemoryHistoryManager();
+    HistoryManager historyManager = createHistoryManager(InMemoryHistoryManager.UNBOUNDED);
     Task task;
     Epic epic;
     Subtask subTask;
+
+    protected HistoryManager createHistoryManager(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
     @BeforeEach
     void beforeEach(){
 
@@ -74,4 +79,31 @@ public class HistoryManagerTest {
         assertNotNull(history, " .");
         assertEquals(2, history.size(), "  ");
     }
+
+    @Test
+    void boundedHistoryShouldEvictOldest() {
+        HistoryManager bounded = createHistoryManager(2);
+        bounded.add(task);
+        bounded.add(epic);
+        bounded.add(task);
+        bounded.add(subTask);
+        assertEquals(List.of(task, subTask), bounded.getHistory());
+        bounded.remove(task.getId());
+        bounded.add(epic);
+        assertEquals(List.of(subTask, epic), bounded.getHistory());
+    }
+
+    @Test
+    void sizeShouldFollowAddsRemovesAndEviction() {
+        HistoryManager bounded = createHistoryManager(2);
+        assertEquals(0, bounded.size());
+        bounded.add(task);
+        bounded.add(task);
+        assertEquals(1, bounded.size(), " ");
+        bounded.add(epic);
+        bounded.add(subTask);
+        assertEquals(2, bounded.size());
+        bounded.remove(epic.getId());
+        assertEquals(bounded.getHistory().size(), bounded.size());
+    }
 }
\ No newline at end of file
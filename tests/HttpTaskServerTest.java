@@ -568,4 +568,50 @@ class HttpTaskServerTest {
         }
     }
 
+    @Test
+    void shouldDecodeMultiWordSearchQuery() {
+        HttpClient client = HttpClient.newHttpClient();
+        Task milk = new Task("Test description 1", "Buy fresh milk", Status.NEW,
+                LocalDateTime.of(2022,1,1,1,0),10);
+        Task bread = new Task("Test description 2", "Bake rye bread", Status.NEW,
+                LocalDateTime.of(2022,1,1,2,0),10);
+
+        try {
+            for (Task task : new Task[]{milk, bread}) {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(TASK_BASE_URL))
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                        .build();
+                client.send(request, HttpResponse.BodyHandlers.ofString());
+            }
+            // "milk & bread": the encoded '&' belongs to the query and must not end it
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks/search?q=milk+%26+bread&limit=5")).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            JsonArray found = JsonParser.parseString(response.body()).getAsJsonArray();
+            assertEquals(2, found.size());
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void shouldRejectRangeWithoutFromOrEndingBeforeStart() {
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks/?to=2022-01-01T10:00")).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks/?from=2022-01-02T10:00&to=2022-01-01T10:00"))
+                    .GET().build();
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
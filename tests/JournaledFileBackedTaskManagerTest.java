@@ -0,0 +1,274 @@
+import com.google.gson.Gson;
+import main.managers.CompactionStats;
+import main.managers.FileBackedTasksManager;
+import main.managers.JournalWriter;
+import main.managers.Managers;
+import main.managers.PersistenceMode;
+import main.managers.SyncPolicy;
+import main.managers.TaskJournal;
+import main.status.Status;
+import main.tasks.Epic;
+import main.tasks.Subtask;
+import main.tasks.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTasksManager> {
+    public static final Path path = Path.of("data.test.journal");
+    File file = new File(String.valueOf(path));
+
+    @Override
+    protected FileBackedTasksManager createTaskManager() {
+        return new FileBackedTasksManager(Managers.getDefaultHistory(), file, PersistenceMode.JOURNAL);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        taskManager = createTaskManager();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        taskManager.close();
+        deleteJournalFiles();
+    }
+
+    private static void deleteJournalFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Path.of("."), path.getFileName() + "*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void shouldReplayJournalIntoTheSameState() throws IOException, InterruptedException {
+        Task task = new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0), 50);
+        taskManager.addTask(task);
+        Epic epic = new Epic("TestEpic", "Test description", Status.NEW);
+        epic.setId(1);
+        int epicId = taskManager.addEpic(epic).getId();
+        Subtask first = new Subtask("Test description", "First", Status.NEW, epicId,
+                LocalDateTime.of(2022, 6, 1, 11, 30), 30);
+        taskManager.addSubtask(first);
+        Subtask second = new Subtask("Test description", "Second", Status.NEW, epicId,
+                LocalDateTime.of(2022, 8, 10, 12, 0), 30);
+        taskManager.addSubtask(second);
+        taskManager.getSubtaskById(first.getId());
+        taskManager.getTaskById(task.getId());
+        taskManager.getEpicById(epicId);
+        Subtask done = new Subtask("Test description", "First", Status.DONE, epicId,
+                LocalDateTime.of(2022, 6, 1, 11, 30), 30);
+        done.setId(first.getId());
+        taskManager.updateSubtask(done);
+        taskManager.removeSubtaskById(second.getId());
+        taskManager.close();
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(taskManager.getAllEpics(), loaded.getAllEpics());
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(taskManager.getHistory(), loaded.getHistory());
+        assertEquals(taskManager.getPrioritizedTasks(), loaded.getPrioritizedTasks());
+        assertEquals(Status.DONE, loaded.getEpicById(epicId).getStatus());
+    }
+
+    @Test
+    public void shouldIgnoreTornTailAfterCrash() throws IOException, InterruptedException {
+        Task task = new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0), 50);
+        taskManager.addTask(task);
+        taskManager.close();
+        Files.writeString(path, "PUT\t7\tTASK\t{\"name\":\"tor", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+        Task next = loaded.addTask(new Task("C", "D", Status.NEW, LocalDateTime.of(2022, 4, 10, 12, 0), 50));
+        loaded.close();
+
+        FileBackedTasksManager reloaded = createTaskManager();
+        reloaded.loadFromFile();
+        assertEquals(List.of(task, next), reloaded.getAllTasks());
+    }
+
+
+    @Test
+    public void groupCommitShouldMakeChangesDurableAtBarrier() throws IOException, InterruptedException {
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            FileBackedTasksManager manager = createTaskManager();
+            manager.enableGroupCommit(policy, Duration.ofMillis(5));
+            for (int i = 0; i < 100; i++) {
+                manager.addTask(new Task("Description", "Task " + i, Status.NEW,
+                        LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30));
+            }
+            manager.getTaskById(manager.getAllTasks().get(0).getId());
+            manager.awaitDurable();
+
+            FileBackedTasksManager loaded = createTaskManager();
+            loaded.loadFromFile();
+            assertEquals(manager.getAllTasks(), loaded.getAllTasks(), policy.name());
+            assertEquals(manager.getHistory(), loaded.getHistory(), policy.name());
+            loaded.close();
+            manager.close();
+            deleteJournalFiles();
+        }
+    }
+
+
+    @Test
+    public void backgroundSnapshotsShouldTruncateJournal() throws IOException, InterruptedException {
+        taskManager.enableBackgroundSnapshots(Duration.ZERO);
+        for (int i = 0; i < 200; i++) {
+            Task task = taskManager.addTask(new Task("Description", "Task " + i, Status.NEW,
+                    LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30));
+            if (i % 2 == 0) {
+                taskManager.removeTaskById(task.getId());
+            }
+        }
+        // the writes can outrun the first snapshot, which then covers almost nothing; the next one is only
+        // started by a write after it finishes
+        while (taskManager.getCompactionStats().getSnapshots() < 2) {
+            Task task = taskManager.addTask(new Task("Description", "Extra", Status.NEW, null, 0));
+            taskManager.removeTaskById(task.getId());
+        }
+        taskManager.close();
+        CompactionStats stats = taskManager.getCompactionStats();
+        assertTrue(stats.getSnapshots() > 0);
+        assertTrue(stats.getTotalBytesReclaimed() > 0);
+        assertTrue(Files.exists(Path.of(path + ".snapshot")));
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+        assertEquals(100, loaded.getAllTasks().size());
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        loaded.close();
+    }
+
+
+    @Test
+    public void journalShouldCarryStartTimeAndRecomputeKeys() throws IOException, InterruptedException {
+        Task task = new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0), 50);
+        taskManager.addTask(task);
+        taskManager.close();
+        String journal = Files.readString(path, StandardCharsets.UTF_8);
+        assertTrue(journal.contains("\"startTime\":\"2022-03-10T12:00\""));
+        assertTrue(!journal.contains("\"start\":"));
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+        Task restored = loaded.getTaskById(task.getId());
+        assertEquals(LocalDateTime.of(2022, 3, 10, 12, 50), restored.getEndTime());
+        assertEquals(task.getEndKey(), restored.getEndKey());
+        loaded.close();
+    }
+
+
+    @Test
+    public void groupCommitShouldShareOneForceAmongQueuedRecords() throws IOException {
+        TaskJournal journal = new TaskJournal(Path.of(path + ".writer"));
+        JournalWriter writer = new JournalWriter(journal, SyncPolicy.EVERY_OP, null);
+        long last = 0;
+        // the writer cannot append while the journal is held, so the records queue up behind it
+        synchronized (journal) {
+            for (int i = 0; i < 10; i++) {
+                last = writer.submit(TaskJournal.record(TaskJournal.Op.VIEW, i, null));
+            }
+        }
+        writer.commit(last);
+
+        assertEquals(10, writer.getDurable());
+        assertTrue(writer.getForces() <= 2);
+        writer.close();
+        journal.close();
+    }
+
+    @Test
+    public void commitShouldBeAsDurableAsThePolicyPromises() throws IOException, InterruptedException {
+        TaskJournal journal = new TaskJournal(Path.of(path + ".writer"));
+        JournalWriter writer = new JournalWriter(journal, SyncPolicy.EVERY_OP, null);
+        long sequence = writer.submit(TaskJournal.record(TaskJournal.Op.VIEW, 1, null));
+        writer.commit(sequence);
+        assertEquals(sequence, writer.getDurable());
+        writer.close();
+
+        writer = new JournalWriter(journal, SyncPolicy.INTERVAL, Duration.ofMillis(10));
+        sequence = writer.submit(TaskJournal.record(TaskJournal.Op.VIEW, 1, null));
+        writer.commit(sequence);
+        for (int i = 0; i < 100 && writer.getDurable() < sequence; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(sequence, writer.getDurable());
+        writer.close();
+
+        // a machine crash before the barrier would lose the commit
+        writer = new JournalWriter(journal, SyncPolicy.ON_CLOSE, null);
+        sequence = writer.submit(TaskJournal.record(TaskJournal.Op.VIEW, 1, null));
+        writer.commit(sequence);
+        Thread.sleep(50);
+        assertEquals(0, writer.getDurable());
+        writer.barrier();
+        assertEquals(sequence, writer.getDurable());
+        writer.close();
+        journal.close();
+    }
+
+
+    @Test
+    public void taskJsonShouldMapTheStartKeyWithoutARegisteredAdapter() {
+        Gson gson = new Gson();
+        Task task = new Task("A", "B", Status.NEW, LocalDateTime.of(2022, 3, 10, 12, 0, 0, 5), 50);
+        task.setId(7);
+        String json = gson.toJson(task);
+        assertTrue(json.contains("\"startTime\":\"2022-03-10T12:00:00.000000005\""));
+        assertEquals(task, gson.fromJson(json, Task.class));
+
+        task.setStartTime(null);
+        json = gson.toJson(task);
+        assertTrue(!json.contains("startTime"));
+        Task restored = gson.fromJson(json, Task.class);
+        assertTrue(!restored.hasStartTime());
+        assertEquals(Task.NO_TIME, restored.getEndKey());
+    }
+
+
+    @Test
+    public void backgroundSnapshotsShouldKeepEpicsThatChangeWhileTheyAreWritten() throws IOException, InterruptedException {
+        taskManager.enableBackgroundSnapshots(Duration.ZERO);
+        Epic epic = new Epic("Description", "Epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        for (int i = 0; i < 2000; i++) {
+            Subtask subtask = taskManager.addSubtask(new Subtask("Description", "Subtask " + i, Status.NEW,
+                    epic.getId(), LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30));
+            taskManager.getSubtaskById(subtask.getId());
+            if (i % 3 == 0) {
+                taskManager.removeSubtaskById(subtask.getId());
+            }
+        }
+        taskManager.close();
+        assertTrue(taskManager.getCompactionStats().getSnapshots() > 0);
+
+        FileBackedTasksManager loaded = createTaskManager();
+        loaded.loadFromFile();
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(taskManager.getAllEpics(), loaded.getAllEpics());
+        assertEquals(taskManager.getHistory(), loaded.getHistory());
+        loaded.close();
+    }
+}
@@ -0,0 +1,23 @@
+import main.managers.Managers;
+import main.managers.OffHeapTaskManager;
+import main.status.Status;
+import main.tasks.Task;
+import main.util.OffHeapTaskStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OffHeapTaskManagerTest extends TaskManagerTest<OffHeapTaskManager> {
+
+    @Override
+    protected OffHeapTaskManager createTaskManager() {
+        return new OffHeapTaskManager(Managers.getDefaultHistory());
+    }
+
+    @Test
+    void storeShouldRejectIdsPastItsColumns() {
+        Task task = new Task("description", "Task", Status.NEW, null, 0);
+        task.setId(OffHeapTaskStore.MAX_ID + 1);
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapTaskStore().put(task));
+    }
+}
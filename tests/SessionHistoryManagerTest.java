@@ -0,0 +1,57 @@
+import main.managers.SessionHistoryManager;
+import main.status.Status;
+import main.tasks.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SessionHistoryManagerTest {
+
+    private Task task(int id) {
+        Task task = new Task("Test description", "Task" + id, Status.NEW, null, 0);
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void sessionsShouldKeepSeparateBoundedHistories() throws InterruptedException {
+        SessionHistoryManager sessions = new SessionHistoryManager(2, Duration.ofMinutes(10));
+        Task first = task(1);
+        Task second = task(2);
+        Task third = task(3);
+        sessions.bind("alice");
+        sessions.add(first);
+        sessions.add(second);
+        sessions.add(third);
+        Thread other = new Thread(() -> {
+            sessions.bind("bob");
+            sessions.add(first);
+            sessions.unbind();
+        });
+        other.start();
+        other.join();
+
+        assertEquals(List.of(second, third), sessions.getHistory());
+        sessions.remove(third.getId());
+        assertEquals(List.of(second), sessions.getHistory());
+        sessions.bind("bob");
+        assertEquals(List.of(first), sessions.getHistory());
+        sessions.unbind();
+        assertEquals(List.of(), sessions.getHistory());
+    }
+
+    @Test
+    void idleSessionsShouldBeEvicted() throws InterruptedException {
+        SessionHistoryManager sessions = new SessionHistoryManager(10, Duration.ofMillis(20));
+        sessions.bind("alice");
+        sessions.add(task(1));
+        Thread.sleep(50);
+        sessions.bind("bob");
+        assertEquals(1, sessions.sessionCount());
+        sessions.bind("alice");
+        assertEquals(List.of(), sessions.getHistory());
+    }
+}
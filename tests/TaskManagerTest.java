@@ -1,14 +1,25 @@
 import main.exceptions.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import main.managers.InMemoryTaskManager;
 import main.managers.TaskManager;
+import main.managers.TaskSnapshot;
 import main.status.Status;
 import main.tasks.Task;
 import main.tasks.Subtask;
 import main.tasks.Epic;
+import main.util.TaskType;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -873,4 +884,472 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(subtasksByInvalidEpicId.isEmpty(), "List should be empty for an invalid epic ID");
     }
 
+    @Test
+    void validationShouldRejectOverlappingTasks() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        taskManager.addTask(new Task("Task 1", "Description", Status.NEW, start, 60));
+        taskManager.addTask(new Task("Task 2", "Description", Status.NEW, start.plusMinutes(60), 30));
+        taskManager.addTask(new Task("Task 3", "Description", Status.NEW, null, 0));
+
+        assertThrows(ValidationException.class, () -> taskManager.addTask(
+                new Task("Task 4", "Description", Status.NEW, start.minusMinutes(10), 20)));
+        assertThrows(ValidationException.class, () -> taskManager.addTask(
+                new Task("Task 5", "Description", Status.NEW, start, 60)));
+        assertEquals(3, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void validationShouldIgnoreUpdatedTaskItself() throws IOException, InterruptedException {
+        Task task = new Task("Task 1", "Description", Status.NEW, LocalDateTime.of(2023, 5, 1, 10, 0), 60);
+        taskManager.addTask(task);
+        task.setDuration(90);
+
+        assertDoesNotThrow(() -> taskManager.updateTask(task));
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void epicShouldFollowSubtaskChanges() throws IOException, InterruptedException {
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        Subtask first = new Subtask("Subtask 1", "Description", Status.NEW, epic.getId(), start, 30);
+        Subtask second = new Subtask("Subtask 2", "Description", Status.NEW, epic.getId(), start.plusHours(2), 45);
+        taskManager.addSubtask(first);
+        taskManager.addSubtask(second);
+
+        assertEquals(Status.NEW, epic.getStatus());
+        assertEquals(start, epic.getStartTime());
+        assertEquals(75, epic.getDuration());
+
+        first.setStatus(Status.DONE);
+        taskManager.updateSubtask(first);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        taskManager.removeSubtaskById(second.getId());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(30, epic.getDuration());
+    }
+
+    @Test
+    void snapshotShouldBeSharedUntilNextWrite() throws IOException, InterruptedException {
+        Task task = new Task("Task 1", "Description", Status.NEW, LocalDateTime.of(2023, 5, 1, 10, 0), 60);
+        taskManager.addTask(task);
+        TaskSnapshot first = taskManager.getSnapshot();
+
+        assertSame(first, taskManager.getSnapshot());
+        assertSame(first.getTasks(), taskManager.getAllTasks());
+        assertThrows(UnsupportedOperationException.class, () -> first.getTasks().add(task));
+
+        taskManager.addTask(new Task("Task 2", "Description", Status.NEW, null, 0));
+        TaskSnapshot second = taskManager.getSnapshot();
+
+        assertNotSame(first, second);
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(1, first.getTasks().size());
+        assertEquals(2, second.getTasks().size());
+        assertEquals(2, second.getPrioritizedTasks().size());
+    }
+
+
+    @Test
+    void snapshotShouldCopyOnlyChangedCollections() throws IOException, InterruptedException {
+        taskManager.addTask(new Task("Task 1", "Description", Status.NEW, LocalDateTime.of(2023, 5, 1, 10, 0), 60));
+        TaskSnapshot first = taskManager.getSnapshot();
+
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        TaskSnapshot second = taskManager.getSnapshot();
+
+        assertEquals(1, second.getEpics().size());
+        assertSame(first.getTasks(), second.getTasks());
+        assertSame(first.getSubtasks(), second.getSubtasks());
+        assertSame(first.getPrioritizedTasks(), second.getPrioritizedTasks());
+    }
+
+
+    @Test
+    void prioritizedTasksShouldBePagedByCursor() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            taskManager.addTask(new Task("Task " + i, "Description", Status.NEW, start.plusHours(i), 30));
+        }
+
+        List<Task> first = taskManager.getPrioritizedTasks(start.plusMinutes(30), 2);
+        assertEquals(2, first.size());
+        assertEquals(start.plusHours(1), first.get(0).getStartTime());
+
+        List<Task> second = taskManager.getPrioritizedTasksAfter(first.get(1).getId(), 10);
+        assertEquals(2, second.size());
+        assertEquals(start.plusHours(3), second.get(0).getStartTime());
+        assertTrue(taskManager.getPrioritizedTasksAfter(-1, 10).isEmpty());
+    }
+
+
+    @Test
+    void statusQueriesShouldFollowUpdates() throws IOException, InterruptedException {
+        Task task = taskManager.addTask(new Task("Task", "Description", Status.NEW, null, 0));
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", Status.NEW, epic.getId(), null, 0);
+        taskManager.addSubtask(subtask);
+
+        assertEquals(List.of(task), taskManager.getTasksByStatus(Status.NEW));
+        assertEquals(List.of(subtask), taskManager.getSubtasksByStatus(Status.NEW));
+
+        subtask.setStatus(Status.DONE);
+        taskManager.updateSubtask(subtask);
+        assertTrue(taskManager.getSubtasksByStatus(Status.NEW).isEmpty());
+        assertEquals(List.of(subtask), taskManager.getSubtasksByStatus(Status.DONE));
+        assertEquals(List.of(epic), taskManager.getEpicsByStatus(Status.DONE));
+
+        taskManager.removeTaskById(task.getId());
+        taskManager.removeAllEpics();
+        assertTrue(taskManager.getTasksByStatus(Status.NEW).isEmpty());
+        assertTrue(taskManager.getEpicsByStatus(Status.DONE).isEmpty());
+        assertTrue(taskManager.getSubtasksByStatus(Status.DONE).isEmpty());
+    }
+
+
+    @Test
+    void searchShouldRankMatchesAndFollowUpdates() throws IOException, InterruptedException {
+        Task report = taskManager.addTask(new Task("Report", "Write the quarterly report, report draft", Status.NEW, null, 0));
+        Task review = taskManager.addTask(new Task("Review", "Review the report", Status.NEW, null, 0));
+        taskManager.addTask(new Task("Lunch", "Book a table", Status.NEW, null, 0));
+
+        assertEquals(List.of(report, review), taskManager.search("REPORT", 10));
+        assertEquals(List.of(report), taskManager.search("report", 1));
+
+        taskManager.removeTaskById(report.getId());
+        assertEquals(List.of(review), taskManager.search("report draft", 10));
+        assertTrue(taskManager.search("unknown", 10).isEmpty());
+    }
+
+
+    @Test
+    void batchInsertShouldBeAllOrNothing() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        taskManager.addTask(new Task("Existing", "Description", Status.NEW, start, 60));
+
+        List<Task> overlapping = List.of(new Task("Task 1", "Description", Status.NEW, start.plusHours(2), 60),
+                new Task("Task 2", "Description", Status.NEW, start.plusHours(2).plusMinutes(30), 60));
+        assertThrows(ValidationException.class, () -> taskManager.addTasks(overlapping));
+        List<Task> clashing = List.of(new Task("Task 3", "Description", Status.NEW, start.plusMinutes(30), 10));
+        assertThrows(ValidationException.class, () -> taskManager.addTasks(clashing));
+        assertEquals(1, taskManager.getAllTasks().size());
+
+        List<Task> batch = taskManager.addTasks(List.of(
+                new Task("Task 4", "Description", Status.NEW, start.plusHours(3), 60),
+                new Task("Task 5", "Description", Status.NEW, start.plusHours(2), 60),
+                new Task("Task 6", "Description", Status.NEW, null, 0)));
+        assertEquals(batch.get(0).getId() + 1, batch.get(1).getId());
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        taskManager.addSubtasks(List.of(
+                new Subtask("Subtask 1", "Description", Status.DONE, epic.getId(), start.plusHours(5), 30),
+                new Subtask("Subtask 2", "Description", Status.DONE, epic.getId(), start.plusHours(4), 30)));
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(start.plusHours(4), epic.getStartTime());
+        assertEquals(60, epic.getDuration());
+    }
+
+
+    @Test
+    void removeIfShouldCascadeAndRecomputeEpicsOnce() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        Epic epic = new Epic("Epic", "Description", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask done = taskManager.addSubtask(new Subtask("Done", "Description", Status.DONE, epic.getId(), start, 30));
+        Subtask fresh = taskManager.addSubtask(new Subtask("New", "Description", Status.NEW, epic.getId(),
+                start.plusHours(1), 30));
+        Task task = taskManager.addTask(new Task("Task", "Description", Status.DONE, start.plusHours(2), 30));
+        taskManager.getSubtaskById(fresh.getId());
+
+        assertEquals(1, taskManager.removeSubtasksIf(subtask -> subtask.getStatus() == Status.NEW));
+        assertEquals(List.of(done.getId()), epic.getSubtaskIds());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(30, epic.getDuration());
+        assertTrue(taskManager.getHistory().isEmpty());
+
+        assertEquals(1, taskManager.removeTasksIf(t -> t.getStatus() == Status.DONE));
+        assertFalse(taskManager.getPrioritizedTasks().contains(task));
+
+        assertEquals(1, taskManager.removeEpicsIf(e -> true));
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+        assertTrue(taskManager.getSubtasksByStatus(Status.DONE).isEmpty());
+    }
+
+
+    @Test
+    void freeSlotShouldBeEarliestGapThatFits() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        taskManager.addTask(new Task("Task 1", "Description", Status.NEW, start, 60));
+        taskManager.addTask(new Task("Task 2", "Description", Status.NEW, start.plusMinutes(90), 60));
+        taskManager.addTask(new Task("Task 3", "Description", Status.NEW, start.plusMinutes(210), 30));
+
+        assertEquals(start.minusHours(1), taskManager.findFreeSlot(start.minusHours(1), 60));
+        assertEquals(start.plusMinutes(60), taskManager.findFreeSlot(start.plusMinutes(10), 30));
+        assertEquals(start.plusMinutes(150), taskManager.findFreeSlot(start, 45));
+        assertEquals(start.plusMinutes(240), taskManager.findFreeSlot(start, 90));
+
+        Task placed = taskManager.addTaskAutoPlaced(new Task("Task 4", "Description", Status.NEW, start, 40));
+        assertEquals(start.plusMinutes(150), placed.getStartTime());
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+    }
+
+
+    @Test
+    void bookedMinutesShouldFollowScheduleChanges() throws IOException, InterruptedException {
+        LocalDate day = LocalDate.of(2023, 5, 1);
+        Task task = taskManager.addTask(new Task("Task 1", "Description", Status.NEW, day.atTime(9, 0), 120));
+        taskManager.addTask(new Task("Task 2", "Description", Status.NEW, day.atTime(23, 0), 180));
+        taskManager.addTask(new Task("Task 3", "Description", Status.NEW, null, 0));
+
+        assertEquals(180, taskManager.getBookedMinutes(day, day.plusDays(1)));
+        assertEquals(120, taskManager.getBookedMinutes(day.plusDays(1), day.plusDays(7)));
+        assertEquals(List.of(day), taskManager.getOverbookedDays(day.minusDays(7), day.plusDays(7), 150));
+
+        task.setStartTime(day.plusDays(3).atTime(9, 0));
+        taskManager.updateTask(task);
+        assertEquals(60, taskManager.getBookedMinutes(day, day.plusDays(1)));
+        assertEquals(List.of(day.plusDays(1), day.plusDays(3)),
+                taskManager.getOverbookedDays(day.minusYears(1), day.plusYears(1), 100));
+        assertEquals(List.of(day.plusDays(3)), taskManager.getOverbookedDays(day.plusDays(2), day.plusDays(7), 100));
+    }
+
+
+    @Test
+    void multiDayBookingShouldFillEveryDayItCovers() throws IOException, InterruptedException {
+        LocalDate day = LocalDate.of(2023, 6, 1);
+        Task longTask = taskManager.addTask(new Task("Long", "Description", Status.NEW, day.atTime(22, 0), 10 * 24 * 60));
+        assertEquals(10 * 24 * 60, taskManager.getBookedMinutes(day.minusDays(1), day.plusDays(11)));
+        assertEquals(120, taskManager.getBookedMinutes(day, day.plusDays(1)));
+        assertEquals(24 * 60, taskManager.getBookedMinutes(day.plusDays(4), day.plusDays(5)));
+        assertEquals(22 * 60, taskManager.getBookedMinutes(day.plusDays(10), day.plusDays(11)));
+
+        taskManager.addTask(new Task("Short", "Description", Status.NEW, day.plusYears(1).atTime(12, 0), 60));
+        assertEquals(List.of(day.plusDays(1), day.plusDays(2), day.plusDays(3), day.plusDays(4), day.plusDays(5),
+                        day.plusDays(6), day.plusDays(7), day.plusDays(8), day.plusDays(9)),
+                taskManager.getOverbookedDays(day.minusYears(1), day.plusYears(2), 24 * 60 - 1));
+
+        taskManager.removeTaskById(longTask.getId());
+        assertEquals(0, taskManager.getBookedMinutes(day.minusDays(1), day.plusDays(11)));
+        assertEquals(60, taskManager.getBookedMinutes(day, day.plusYears(2)));
+    }
+
+    @Test
+    void rangeQueryShouldReturnIntersectingTasksOnly() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0);
+        Task longTask = taskManager.addTask(new Task("Long", "Description", Status.NEW, start.minusDays(2), 3 * 24 * 60));
+        Task inside = taskManager.addTask(new Task("Inside", "Description", Status.NEW, start.plusDays(1).plusHours(1), 30));
+        taskManager.addTask(new Task("After", "Description", Status.NEW, start.plusDays(3), 30));
+        taskManager.addTask(new Task("Unscheduled", "Description", Status.NEW, null, 0));
+
+        assertEquals(List.of(longTask, inside), taskManager.getTasksInRange(start, start.plusDays(2)));
+        assertEquals(List.of(inside), taskManager.getTasksInRange(start.plusDays(1), start.plusDays(3)));
+        assertTrue(taskManager.getTasksInRange(start.plusDays(4), start.plusDays(5)).isEmpty());
+    }
+
+
+    @Test
+    void timeKeysShouldFollowStartAndDuration() throws IOException, InterruptedException {
+        Task task = taskManager.addTask(new Task("Task", "Description", Status.NEW, null, 30));
+        assertNull(task.getEndTime());
+        assertFalse(task.hasStartTime());
+
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 10, 0, 15);
+        task.setStartTime(start);
+        task.setDuration(45);
+        assertEquals(start, task.getStartTime());
+        assertEquals(start.plusMinutes(45), task.getEndTime());
+        assertEquals(45L * 60 * 1_000_000_000L, task.getEndKey() - task.getStartKey());
+    }
+
+    @Test
+    void doneWorkShouldMoveToArchiveAndStayReadable(@TempDir Path directory) throws IOException, InterruptedException {
+        LocalDateTime closed = LocalDateTime.now().minusDays(10);
+        Task done = taskManager.addTask(new Task("closed", "Done task", Status.DONE, closed, 30));
+        Task open = taskManager.addTask(new Task("open", "Open task", Status.NEW, closed.plusHours(1), 30));
+        Epic epic = new Epic("epic", "Done epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask subtask = taskManager.addSubtask(new Subtask("sub", "Done subtask", Status.DONE, epic.getId(),
+                closed.plusHours(2), 30));
+
+        taskManager.enableArchive(directory, Duration.ofDays(1));
+        assertEquals(3, taskManager.archiveDone());
+        assertEquals(0, taskManager.archiveDone());
+
+        assertFalse(taskManager.getTaskList().containsKey(done.getId()));
+        assertFalse(taskManager.getEpicsList().containsKey(epic.getId()));
+        assertEquals(List.of(open), taskManager.getPrioritizedTasks());
+        assertEquals(done, taskManager.getTaskById(done.getId()));
+        assertEquals(subtask, taskManager.getSubtaskById(subtask.getId()));
+        assertEquals(Status.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertNull(taskManager.getSubtaskById(done.getId()));
+        assertEquals(2, taskManager.getArchived(task -> task.getName().startsWith("Done ")
+                && task.getType() != TaskType.EPIC).size());
+    }
+
+    @Test
+    void recentHistoryShouldPageMostRecentFirst() throws IOException, InterruptedException {
+        Task first = taskManager.addTask(new Task("first", "Task1", Status.NEW, null, 0));
+        Task second = taskManager.addTask(new Task("second", "Task2", Status.NEW, null, 0));
+        Task third = taskManager.addTask(new Task("third", "Task3", Status.NEW, null, 0));
+        taskManager.getTaskById(first.getId());
+        taskManager.getTaskById(second.getId());
+        taskManager.getTaskById(third.getId());
+        taskManager.getTaskById(first.getId());
+
+        assertEquals(List.of(first, third), taskManager.getRecentHistory(0, 2));
+        assertEquals(List.of(second), taskManager.getRecentHistory(2, 2));
+        assertEquals(List.of(), taskManager.getRecentHistory(3, 2));
+    }
+
+    @Test
+    void laterWritesShouldSweepTheArchive(@TempDir Path directory) throws IOException, InterruptedException {
+        LocalDateTime closed = LocalDateTime.now().minusDays(10);
+        Task done = taskManager.addTask(new Task("closed", "Done task", Status.DONE, closed, 30));
+        MovableClock clock = new MovableClock();
+        ((InMemoryTaskManager) taskManager).enableArchive(directory, Duration.ofDays(1), clock);
+
+        taskManager.addTask(new Task("first", "Task1", Status.NEW, null, 0));
+        assertTrue(taskManager.getTaskList().containsKey(done.getId()));
+
+        clock.advance(Duration.ofMinutes(2));
+        taskManager.addTask(new Task("second", "Task2", Status.NEW, null, 0));
+        assertFalse(taskManager.getTaskList().containsKey(done.getId()));
+        assertEquals(done, taskManager.getTaskById(done.getId()));
+    }
+
+    @Test
+    void archivedItemsShouldBeRemovedUpdatedAndViewed(@TempDir Path directory) throws IOException, InterruptedException {
+        LocalDateTime closed = LocalDateTime.now().minusDays(10);
+        Task done = taskManager.addTask(new Task("closed", "Done task", Status.DONE, closed, 30));
+        Task other = taskManager.addTask(new Task("closed", "Other task", Status.DONE, closed.plusHours(1), 30));
+        Epic epic = new Epic("epic", "Done epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask subtask = taskManager.addSubtask(new Subtask("sub", "Done subtask", Status.DONE, epic.getId(),
+                closed.plusHours(2), 30));
+        taskManager.enableArchive(directory, Duration.ofDays(1));
+        assertEquals(4, taskManager.archiveDone());
+
+        ((InMemoryTaskManager) taskManager).addToHistory(other.getId());
+        assertEquals(List.of(other), taskManager.getHistory());
+
+        taskManager.removeTaskById(done.getId());
+        assertNull(taskManager.getTaskById(done.getId()));
+
+        Subtask reopened = new Subtask("sub", "Done subtask", Status.IN_PROGRESS, epic.getId(), closed.plusHours(2), 30);
+        reopened.setId(subtask.getId());
+        taskManager.updateSubtask(reopened);
+        assertEquals(Status.IN_PROGRESS, taskManager.getSubtasksList().get(subtask.getId()).getStatus());
+        assertEquals(Status.IN_PROGRESS, taskManager.getEpicsList().get(epic.getId()).getStatus());
+        assertEquals(List.of(subtask.getId()), taskManager.getEpicsList().get(epic.getId()).getSubtaskIds());
+
+        taskManager.removeTaskById(other.getId());
+        assertEquals(List.of(), taskManager.getArchived(task -> true));
+        assertTrue(taskManager.getHistory().stream().noneMatch(task -> task.getId() == other.getId()));
+    }
+
+    @Test
+    void removeAllShouldReachArchivedItems(@TempDir Path directory) throws IOException, InterruptedException {
+        LocalDateTime closed = LocalDateTime.now().minusDays(10);
+        Task done = taskManager.addTask(new Task("closed", "Done task", Status.DONE, closed, 30));
+        Epic epic = new Epic("epic", "Done epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask subtask = taskManager.addSubtask(new Subtask("sub", "Done subtask", Status.DONE, epic.getId(),
+                closed.plusHours(1), 30));
+        taskManager.enableArchive(directory, Duration.ofDays(1));
+        assertEquals(3, taskManager.archiveDone());
+
+        taskManager.removeAllTasks();
+        assertNull(taskManager.getTaskById(done.getId()));
+        assertNotNull(taskManager.getEpicById(epic.getId()));
+
+        taskManager.removeAllEpics();
+        assertNull(taskManager.getEpicById(epic.getId()));
+        assertNull(taskManager.getSubtaskById(subtask.getId()));
+        assertEquals(List.of(), taskManager.getArchived(task -> true));
+    }
+
+    @Test
+    void removeIfShouldFilterArchivedItems(@TempDir Path directory) throws IOException, InterruptedException {
+        LocalDateTime closed = LocalDateTime.now().minusDays(10);
+        Task first = taskManager.addTask(new Task("closed", "Done A", Status.DONE, closed, 30));
+        Task second = taskManager.addTask(new Task("closed", "Done B", Status.DONE, closed.plusHours(1), 30));
+        Epic epic = new Epic("epic", "Done epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        Subtask kept = taskManager.addSubtask(new Subtask("sub", "Sub A", Status.DONE, epic.getId(),
+                closed.plusHours(2), 30));
+        Subtask dropped = taskManager.addSubtask(new Subtask("sub", "Sub B", Status.DONE, epic.getId(),
+                closed.plusHours(3), 30));
+        taskManager.enableArchive(directory, Duration.ofDays(1));
+        assertEquals(5, taskManager.archiveDone());
+
+        assertEquals(1, taskManager.removeTasksIf(task -> task.getName().equals("Done A")));
+        assertNull(taskManager.getTaskById(first.getId()));
+        assertEquals(second, taskManager.getTaskById(second.getId()));
+
+        assertEquals(1, taskManager.removeSubtasksIf(subtask -> subtask.getName().equals("Sub B")));
+        assertNull(taskManager.getSubtaskById(dropped.getId()));
+        assertEquals(kept, taskManager.getSubtaskById(kept.getId()));
+        assertEquals(List.of(kept.getId()), taskManager.getEpicById(epic.getId()).getSubtaskIds());
+    }
+
+    static class MovableClock extends Clock {
+        private volatile Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+
+    @Test
+    public void removingSubtasksShouldKeepTheOrderOfTheEpicsOtherIds() throws IOException, InterruptedException {
+        Epic epic = new Epic("epic", "Epic", Status.NEW);
+        epic.setId(1);
+        taskManager.addEpic(epic);
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Subtask subtask = taskManager.addSubtask(new Subtask("sub", "Sub " + i, Status.NEW, epic.getId(),
+                    LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(i), 30));
+            if (i % 4 == 0) {
+                kept.add(subtask.getId());
+            } else {
+                taskManager.removeSubtaskById(subtask.getId());
+            }
+        }
+        assertEquals(kept, taskManager.getEpicById(epic.getId()).getSubtaskIds());
+        taskManager.removeSubtaskById(kept.remove(3));
+        assertEquals(kept, taskManager.getEpicById(epic.getId()).getSubtaskIds());
+        assertEquals(kept.size(), taskManager.getAllSubtasksByEpicId(epic.getId()).size());
+    }
 }
\ No newline at end of file